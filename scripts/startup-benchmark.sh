@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# Compara o tempo de inicialização do jar comum com o do jar AOT + CDS gerado por ./mvnw -Pfast-startup package.
+# Uso: scripts/startup-benchmark.sh [execuções]   (padrão: 5)
+set -euo pipefail
+
+RUNS=${1:-5}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR_NAME=fiadopay-sim-1.0.0.jar
+JAR="$ROOT/target/$JAR_NAME"
+CDS_DIR="$ROOT/target/cds"
+
+if [[ ! -f "$JAR" || ! -f "$CDS_DIR/application.jsa" ]]; then
+  echo "Gere os artefatos antes: ./mvnw -Pfast-startup package" >&2
+  exit 1
+fi
+
+# sobe a aplicação numa porta livre e num diretório de dados descartável, espera o log de
+# "Started FiadoPayApplication" e devolve o "process running for" (segundos desde o início da JVM)
+measure() {
+  local workdir log pid seconds
+  workdir=$(mktemp -d)
+  log="$workdir/out.log"
+  (cd "$workdir" && exec java "$@" --server.port=0 > "$log" 2>&1) &
+  pid=$!
+  for _ in $(seq 1 600); do
+    if grep -q "Started FiadoPayApplication" "$log"; then break; fi
+    if ! kill -0 "$pid" 2>/dev/null; then cat "$log" >&2; exit 1; fi
+    sleep 0.1
+  done
+  seconds=$(grep -o "process running for [0-9.]*" "$log" | awk '{print $4}')
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  rm -rf "$workdir"
+  echo "$seconds"
+}
+
+run() {
+  local label=$1; shift
+  local total=0 t
+  for i in $(seq 1 "$RUNS"); do
+    t=$(measure "$@")
+    printf '  %-12s execução %d: %ss\n' "$label" "$i" "$t"
+    total=$(echo "$total + $t" | bc -l)
+  done
+  printf '%-12s média: %.3fs\n' "$label" "$(echo "$total / $RUNS" | bc -l)"
+}
+
+echo "Inicialização até 'Started FiadoPayApplication' ($RUNS execuções cada)"
+run "padrão" -jar "$JAR"
+run "aot+cds" -XX:SharedArchiveFile="$CDS_DIR/application.jsa" -Dspring.aot.enabled=true -jar "$CDS_DIR/$JAR_NAME"
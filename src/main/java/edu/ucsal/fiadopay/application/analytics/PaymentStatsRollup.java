@@ -0,0 +1,153 @@
+package edu.ucsal.fiadopay.application.analytics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Agregados em memória de volume e status por merchant, método e janela de tempo (minuto, hora e dia).
+ * Os contadores são {@link LongAdder}, então threads de settlement e requisições não disputam a mesma célula.
+ * O estado é salvo periodicamente em disco para que um restart não precise reprocessar a tabela de pagamentos.
+ * */
+@Component
+public class PaymentStatsRollup {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStatsRollup.class);
+    private static final int SNAPSHOT_MAGIC = 0xF1AD0057;
+
+    public enum Granularity {
+        MINUTE(60_000L, 180),
+        HOUR(3_600_000L, 72),
+        DAY(86_400_000L, 90);
+
+        final long millis;
+        final int retainedBuckets;
+
+        Granularity(long millis, int retainedBuckets) {
+            this.millis = millis;
+            this.retainedBuckets = retainedBuckets;
+        }
+
+        long bucketStart(long epochMillis) {
+            return epochMillis - Math.floorMod(epochMillis, millis);
+        }
+    }
+
+    public record Key(String method, String status, Granularity granularity, long bucketStart) {
+    }
+
+    public static final class Counter {
+        final LongAdder count = new LongAdder();
+        final LongAdder amountCents = new LongAdder();
+
+        public long count() {
+            return count.sum();
+        }
+
+        public BigDecimal amount() {
+            return BigDecimal.valueOf(amountCents.sum(), 2);
+        }
+    }
+
+    private final Map<Long, ConcurrentHashMap<Key, Counter>> merchants = new ConcurrentHashMap<>();
+
+    @Value("${fiadopay.stats.snapshot-path}")
+    String snapshotPath;
+
+    public void record(long merchantId, String method, String status, BigDecimal amount, Instant at) {
+        long cents = amount == null ? 0L : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        long millis = at.toEpochMilli();
+        var buckets = merchants.computeIfAbsent(merchantId, k -> new ConcurrentHashMap<>());
+        for (Granularity g : Granularity.values()) {
+            var counter = buckets.computeIfAbsent(new Key(method, status, g, g.bucketStart(millis)), k -> new Counter());
+            counter.count.increment();
+            counter.amountCents.add(cents);
+        }
+    }
+
+    public void forEach(long merchantId, Granularity granularity, BiConsumer<Key, Counter> consumer) {
+        var buckets = merchants.get(merchantId);
+        if (buckets == null) return;
+        buckets.forEach((key, counter) -> {
+            if (key.granularity() == granularity) consumer.accept(key, counter);
+        });
+    }
+
+    @PostConstruct
+    public void restore() {
+        var path = Path.of(snapshotPath);
+        if (!Files.exists(path)) return;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("Ignorando snapshot de estatísticas inválido em {}", path);
+                return;
+            }
+            while (in.readBoolean()) {
+                long merchantId = in.readLong();
+                var key = new Key(in.readUTF(), in.readUTF(), Granularity.values()[in.readByte()], in.readLong());
+                var counter = new Counter();
+                counter.count.add(in.readLong());
+                counter.amountCents.add(in.readLong());
+                merchants.computeIfAbsent(merchantId, k -> new ConcurrentHashMap<>()).put(key, counter);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Falha ao restaurar snapshot de estatísticas de {}", path, e);
+            merchants.clear();
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${fiadopay.stats.snapshot-interval-ms}", initialDelayString = "${fiadopay.stats.snapshot-interval-ms}")
+    public void snapshot() {
+        prune(System.currentTimeMillis());
+        var path = Path.of(snapshotPath).toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            var tmp = Files.createTempFile(path.getParent(), "stats", ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                for (var merchant : merchants.entrySet()) {
+                    for (var bucket : merchant.getValue().entrySet()) {
+                        var key = bucket.getKey();
+                        out.writeBoolean(true);
+                        out.writeLong(merchant.getKey());
+                        out.writeUTF(key.method());
+                        out.writeUTF(key.status());
+                        out.writeByte(key.granularity().ordinal());
+                        out.writeLong(key.bucketStart());
+                        out.writeLong(bucket.getValue().count.sum());
+                        out.writeLong(bucket.getValue().amountCents.sum());
+                    }
+                }
+                out.writeBoolean(false);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Falha ao salvar snapshot de estatísticas em {}", path, e);
+        }
+    }
+
+    private void prune(long now) {
+        for (var buckets : merchants.values()) {
+            buckets.keySet().removeIf(key ->
+                    key.bucketStart() < key.granularity().bucketStart(now) - key.granularity().millis * key.granularity().retainedBuckets);
+        }
+    }
+
+}
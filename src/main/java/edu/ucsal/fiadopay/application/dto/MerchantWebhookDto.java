@@ -1,4 +1,4 @@
 package edu.ucsal.fiadopay.application.dto;
 
-public record MerchantWebhookDto(String id, String type, PaymentStatusUpdateDto data) {
+public record MerchantWebhookDto(String id, String type, Object data) {
 }
@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+
+public record PaymentCreatedEvent(Payment payment) {
+}
@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto;
+
+import java.math.BigDecimal;
+
+public record RefundStatusUpdateDto(String refundId, String paymentId, String status, BigDecimal amount, String occurredAt) {
+}
@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto;
+
+import edu.ucsal.fiadopay.domain.model.Refund;
+
+public record RefundUpdatedEvent(Refund refund) {
+}
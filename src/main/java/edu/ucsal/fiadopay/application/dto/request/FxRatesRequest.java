@@ -0,0 +1,10 @@
+package edu.ucsal.fiadopay.application.dto.request;
+
+import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
+import java.util.Map;
+
+public record FxRatesRequest(
+    // unidades da moeda de liquidação por 1 unidade da moeda, ex: { "USD": 5.4213 }
+    @NotEmpty Map<@NotBlank String, @NotNull @Positive BigDecimal> rates
+) {}
@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.application.dto.request;
+
+import jakarta.validation.constraints.*;
+import java.util.List;
+
+public record PaymentStatusBatchRequest(
+    @NotEmpty @Size(max = 500) List<@NotBlank String> ids
+) {}
@@ -1,7 +1,12 @@
 package edu.ucsal.fiadopay.application.dto.request;
 
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
+import java.math.BigDecimal;
 
 public record RefundRequest(
-    @NotBlank String paymentId
+    @NotBlank String paymentId,
+    // opcional: sem valor, reembolsa todo o saldo restante do pagamento
+    @DecimalMin(value = "0.01") @Digits(integer = 17, fraction = 2) BigDecimal amount
 ) {}
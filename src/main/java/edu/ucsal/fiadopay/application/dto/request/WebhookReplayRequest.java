@@ -0,0 +1,15 @@
+package edu.ucsal.fiadopay.application.dto.request;
+
+import jakarta.validation.constraints.*;
+import java.time.Instant;
+import java.util.List;
+
+public record WebhookReplayRequest(
+    // com ids, reenvia só essas entregas; sem ids, todas as que falharam dentro dos filtros
+    @Size(max = 10000) List<Long> deliveryIds,
+    Long merchantId,
+    Instant from,
+    Instant to,
+    @DecimalMin(value = "0.1") @DecimalMax(value = "10000") Double ratePerSecond,
+    @Min(1) @Max(64) Integer parallelism
+) {}
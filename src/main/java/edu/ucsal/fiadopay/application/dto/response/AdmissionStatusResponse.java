@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+public record AdmissionStatusResponse(int limit, int inFlight, long accepted, long rejected, double lastLatencyMs,
+                                      int scheduledSettlements, int maxScheduledSettlements,
+                                      long webhookEventBacklog, int webhookQueueSize, int webhookActive) {
+}
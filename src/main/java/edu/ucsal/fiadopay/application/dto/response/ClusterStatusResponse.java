@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.util.List;
+
+public record ClusterStatusResponse(boolean enabled, String nodeId, boolean leader, List<String> liveMembers) {
+}
@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+public record FxRatesResponse(String settlementCurrency, Map<String, BigDecimal> rates, String source, Instant loadedAt) {
+}
@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record PaymentEventResponse(long sequence, String type, String fromStatus, String toStatus, BigDecimal amount,
+                                   Instant occurredAt) {
+}
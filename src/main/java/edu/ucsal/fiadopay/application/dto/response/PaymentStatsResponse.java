@@ -0,0 +1,15 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public record PaymentStatsResponse(String granularity, List<Bucket> buckets, List<MethodSummary> methods) {
+
+    public record Bucket(Instant bucketStart, String method, String status, long count, BigDecimal amount) {
+    }
+
+    public record MethodSummary(String method, long created, long approved, long declined, double approvalRate) {
+    }
+
+}
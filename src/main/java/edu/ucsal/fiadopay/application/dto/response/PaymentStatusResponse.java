@@ -0,0 +1,7 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.time.Instant;
+
+// status NOT_FOUND quando o id não existe ou é de outro merchant
+public record PaymentStatusResponse(String id, String status, Instant updatedAt) {
+}
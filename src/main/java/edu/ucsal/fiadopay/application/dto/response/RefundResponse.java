@@ -0,0 +1,14 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import edu.ucsal.fiadopay.domain.model.Refund;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record RefundResponse(String id, String paymentId, BigDecimal amount, String status, Instant createdAt, Instant updatedAt) {
+
+    public RefundResponse(Refund refund) {
+        this(refund.getId(), refund.getPaymentId(), refund.getAmount(), refund.getStatus().name(), refund.getCreatedAt(), refund.getUpdatedAt());
+    }
+
+}
@@ -0,0 +1,6 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.util.List;
+
+public record WebhookDeliveryPageResponse(List<WebhookDeliveryResponse> items, Long nextCursor) {
+}
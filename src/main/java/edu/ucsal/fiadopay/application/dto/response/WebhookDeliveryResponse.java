@@ -0,0 +1,15 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
+
+import java.time.Instant;
+
+public record WebhookDeliveryResponse(Long id, String eventId, String eventType, String paymentId, Long merchantId,
+                                      String targetUrl, int attempts, String state, Instant createdAt, Instant lastAttemptAt) {
+
+    public WebhookDeliveryResponse(WebhookDelivery d) {
+        this(d.getId(), d.getEventId(), d.getEventType(), d.getPaymentId(), d.getMerchantId(),
+                d.getTargetUrl(), d.getAttempts(), d.state().name(), d.getCreatedAt(), d.getLastAttemptAt());
+    }
+
+}
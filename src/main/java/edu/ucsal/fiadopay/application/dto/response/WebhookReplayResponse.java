@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.application.dto.response;
+
+import java.time.Instant;
+
+public record WebhookReplayResponse(String id, String status, long total, long sent, long succeeded, long failed,
+                                    long skipped, long handedOff,
+                                    double ratePerSecond, int parallelism, Instant startedAt, Instant finishedAt) {
+}
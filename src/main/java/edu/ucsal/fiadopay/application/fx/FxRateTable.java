@@ -0,0 +1,83 @@
+package edu.ucsal.fiadopay.application.fx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Snapshot imutável das taxas de câmbio para a moeda de liquidação: quantas unidades de {@code settlementCurrency}
+ * vale uma unidade de cada moeda. É trocado inteiro, então uma conversão nunca mistura taxas de duas cargas.
+ * */
+public final class FxRateTable {
+
+    public static final int RATE_SCALE = 8;
+    public static final int AMOUNT_SCALE = 2;
+
+    private final String settlementCurrency;
+    private final Map<String, BigDecimal> rates;
+    private final String source;
+    private final Instant loadedAt;
+
+    public FxRateTable(String settlementCurrency, Map<String, BigDecimal> rates, String source) {
+        var base = normalize(settlementCurrency);
+        if (base == null) throw new IllegalArgumentException("Moeda de liquidação inválida: " + settlementCurrency);
+
+        var normalized = new HashMap<String, BigDecimal>();
+        rates.forEach((currency, rate) -> {
+            var code = normalize(currency);
+            if (code == null) throw new IllegalArgumentException("Código de moeda inválido: " + currency);
+            if (rate == null || rate.signum() <= 0) throw new IllegalArgumentException("Taxa inválida para " + code);
+            // recusa em vez de arredondar: a taxa gravada no pagamento é exatamente a informada
+            if (rate.stripTrailingZeros().scale() > RATE_SCALE) {
+                throw new IllegalArgumentException("Taxa de " + code + " com mais de " + RATE_SCALE + " casas decimais");
+            }
+            normalized.put(code, rate.setScale(RATE_SCALE));
+        });
+        normalized.put(base, BigDecimal.ONE.setScale(RATE_SCALE));
+
+        this.settlementCurrency = base;
+        this.rates = Map.copyOf(normalized);
+        this.source = source;
+        this.loadedAt = Instant.now();
+    }
+
+    /** Taxa para a moeda informada, ou {@code null} se ela não é suportada. */
+    public BigDecimal rate(String currency) {
+        var code = normalize(currency);
+        return code == null ? null : rates.get(code);
+    }
+
+    /**
+     * O produto de dois BigDecimal é exato; o único arredondamento é o final, para centavos, com HALF_EVEN
+     * para não enviesar a soma de muitas conversões.
+     * */
+    public static BigDecimal convert(BigDecimal amount, BigDecimal rate) {
+        return amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    public String settlementCurrency() {
+        return settlementCurrency;
+    }
+
+    public Map<String, BigDecimal> rates() {
+        return rates;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    private static String normalize(String currency) {
+        if (currency == null) return null;
+        var code = currency.trim().toUpperCase(Locale.ROOT);
+        return code.matches("[A-Z]{3}") ? code : null;
+    }
+
+}
@@ -0,0 +1,38 @@
+package edu.ucsal.fiadopay.application.listener;
+
+import edu.ucsal.fiadopay.application.analytics.PaymentStatsRollup;
+import edu.ucsal.fiadopay.application.dto.PaymentCreatedEvent;
+import edu.ucsal.fiadopay.application.dto.PaymentUpdatedEvent;
+import edu.ucsal.fiadopay.domain.model.Payment;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+public class PaymentStatsListener {
+
+    private final PaymentStatsRollup rollup;
+
+    public PaymentStatsListener(PaymentStatsRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    @EventListener
+    public void onCreated(PaymentCreatedEvent event) {
+        var p = event.payment();
+        rollup.record(p.getMerchantId(), p.getMethod(), p.getStatus().name(), settled(p), p.getCreatedAt());
+    }
+
+    @EventListener
+    public void onUpdated(PaymentUpdatedEvent event) {
+        var p = event.payment();
+        rollup.record(p.getMerchantId(), p.getMethod(), p.getStatus().name(), settled(p), p.getUpdatedAt());
+    }
+
+    // volumes somados na moeda de liquidação; pagamentos anteriores ao câmbio já estavam nela
+    private static BigDecimal settled(Payment p) {
+        return p.getSettlementAmount() != null ? p.getSettlementAmount() : p.getTotalWithInterest();
+    }
+
+}
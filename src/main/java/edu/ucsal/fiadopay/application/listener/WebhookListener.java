@@ -4,117 +4,380 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsal.fiadopay.application.dto.MerchantWebhookDto;
 import edu.ucsal.fiadopay.application.dto.PaymentStatusUpdateDto;
 import edu.ucsal.fiadopay.application.dto.PaymentUpdatedEvent;
+import edu.ucsal.fiadopay.application.dto.RefundStatusUpdateDto;
+import edu.ucsal.fiadopay.application.dto.RefundUpdatedEvent;
+import edu.ucsal.fiadopay.domain.model.Merchant;
 import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
 import edu.ucsal.fiadopay.domain.repository.MerchantRepository;
 import edu.ucsal.fiadopay.domain.repository.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import edu.ucsal.fiadopay.infrastructure.eventbus.RingBuffer;
+import edu.ucsal.fiadopay.infrastructure.observability.Phases;
 import edu.ucsal.fiadopay.infrastructure.security.criptography.EncodingService;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 @Component
 public class WebhookListener {
 
+    private static final Logger log = LoggerFactory.getLogger(WebhookListener.class);
+    private static final int REDISPATCH_PAGE = 500;
+    // lotes seguidos com falha antes de gravar evento a evento e descartar o que falhar sozinho
+    private static final int MAX_BATCH_FAILURES = 10;
+
     private final MerchantRepository merchantRepository;
     private final WebhookDeliveryRepository deliveries;
     private final ObjectMapper objectMapper;
     private final EncodingService encodingService;
+    private final ClusterMembership cluster;
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(5);
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    private final ThreadPoolExecutor executorService;
+    private final RingBuffer<WebhookEvent> ring;
+    private final int batchSize;
+    private final Thread consumer = new Thread(this::consume, "webhook-bus");
+    private volatile boolean running = true;
+    // entregas com tentativa em andamento ou retry agendado neste nó
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
 
     @Value("${fiadopay.webhook-secret}")
     String secret;
+    @Value("${fiadopay.webhook.redispatch-new-after-ms}")
+    long redispatchNewAfterMs;
+    @Value("${fiadopay.webhook.redispatch-after-ms}")
+    long redispatchAfterMs;
 
-    public WebhookListener(MerchantRepository merchantRepository, WebhookDeliveryRepository deliveries, ObjectMapper objectMapper, EncodingService encodingService) {
+    public WebhookListener(MerchantRepository merchantRepository, WebhookDeliveryRepository deliveries, ObjectMapper objectMapper, EncodingService encodingService,
+                           ClusterMembership cluster,
+                           @Value("${fiadopay.webhook.queue-capacity}") int queueCapacity,
+                           @Value("${fiadopay.webhook.ring-size}") int ringSize,
+                           @Value("${fiadopay.webhook.batch-size}") int batchSize) {
         this.merchantRepository = merchantRepository;
         this.deliveries = deliveries;
         this.objectMapper = objectMapper;
         this.encodingService = encodingService;
+        this.cluster = cluster;
+        // fila limitada: cheia, a entrega recusada só fica gravada e a varredura de pendentes a retoma depois.
+        // Nunca roda HTTP no consumidor do barramento, que pararia o ring e quem publica nele
+        this.executorService = new ThreadPoolExecutor(5, 5, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), (task, executor) -> {
+                    if (task instanceof DeliveryTask t) inFlight.remove(t.deliveryId);
+                });
+        this.ring = new RingBuffer<>(ringSize, WebhookEvent::new);
+        this.batchSize = batchSize;
+        consumer.setDaemon(true);
+    }
+
+    public int pendingDeliveries() {
+        return executorService.getQueue().size();
+    }
+
+    public int activeDeliveries() {
+        return executorService.getActiveCount();
     }
 
-    @EventListener
+    public long pendingEvents() {
+        return ring.backlog();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
     public void sendWebhook(PaymentUpdatedEvent PaymentEvent) {
         var p = PaymentEvent.payment();
-        var merchant = merchantRepository.findById(p.getMerchantId()).orElseThrow(() -> new EntityNotFoundException("Merchant not found"));
-        if (merchant == null || merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isBlank()) return;
+        var data = new PaymentStatusUpdateDto(
+                p.getId(),
+                p.getStatus().name(),
+                Instant.now().toString()
+        );
+        publish(p.getMerchantId(), p.getId(), "payment.updated", data);
+    }
 
-        String payload;
+    @TransactionalEventListener(fallbackExecution = true)
+    public void sendRefundWebhook(RefundUpdatedEvent refundEvent) {
+        var r = refundEvent.refund();
+        var data = new RefundStatusUpdateDto(
+                r.getId(),
+                r.getPaymentId(),
+                r.getStatus().name(),
+                r.getAmount(),
+                r.getUpdatedAt().toString()
+        );
+        publish(r.getMerchantId(), r.getPaymentId(), "refund.updated", data);
+    }
+
+    // depois do commit, quem publica só reserva e preenche um slot; merchant, JSON, HMAC e INSERT ficam com o consumidor
+    private void publish(Long merchantId, String paymentId, String eventType, Object data) {
+        long sequence = ring.next();
+        var event = ring.get(sequence);
+        event.merchantId = merchantId;
+        event.paymentId = paymentId;
+        event.eventType = eventType;
+        event.data = data;
+        ring.publish(sequence);
+    }
+
+    @PostConstruct
+    public void startConsumer() {
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stopConsumer() throws InterruptedException {
+        running = false;
+        consumer.join(5_000);
+    }
+
+    private void consume() {
+        int idle = 0;
+        int failures = 0;
+        while (running) {
+            int drained = drain();
+            if (drained > 0) {
+                idle = 0;
+                failures = 0;
+            } else if (drained < 0 && ++failures >= MAX_BATCH_FAILURES) {
+                // falha que não passa (payload ruim, constraint): um evento não pode parar o ring e quem publica nele
+                ring.drain(batchSize, this::persistEach);
+                failures = 0;
+            } else if (drained < 0) {
+                // o lote continua no ring: espera até 1s e tenta de novo; cheio, o ring segura quem publica
+                LockSupport.parkNanos(Math.min(1_000_000_000L, 10_000_000L << Math.min(failures - 1, 7)));
+            } else {
+                // backoff até 1ms ocioso: sem carga a thread quase não acorda, com carga não dorme
+                LockSupport.parkNanos(Math.min(1_000_000L, 10_000L << Math.min(idle++, 7)));
+            }
+        }
+        while (drain() > 0) {
+            // esvazia o que já foi publicado antes de desligar
+        }
+    }
+
+    // eventos consumidos, ou -1 se o lote falhou e ficou no ring para a próxima tentativa
+    private int drain() {
         try {
-            var data = new PaymentStatusUpdateDto(
-                    p.getId(),
-                    p.getStatus().name(),
-                    Instant.now().toString()
-            );
+            return ring.drain(batchSize, this::persistBatch);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar lote de webhooks; o lote será tentado de novo", e);
+            return -1;
+        }
+    }
+
+    private void persistBatch(RingBuffer<WebhookEvent> ring, long first, int count) {
+        var merchantIds = new HashSet<Long>();
+        for (int i = 0; i < count; i++) merchantIds.add(ring.get(first + i).merchantId);
+        Map<Long, Merchant> merchants = new HashMap<>();
+        merchantRepository.findAllById(merchantIds).forEach(m -> merchants.put(m.getId(), m));
+
+        var batch = new ArrayList<WebhookDelivery>(count);
+        for (int i = 0; i < count; i++) {
+            var event = ring.get(first + i);
+            var delivery = prepare(event, merchants.get(event.merchantId));
+            if (delivery != null) batch.add(delivery);
+        }
+
+        List<WebhookDelivery> saved = List.of();
+        if (!batch.isEmpty()) {
+            try (var phase = Phases.start("webhook", "persist")) {
+                saved = deliveries.saveAll(batch);
+            }
+        }
+        // só depois de gravado: se o INSERT falha, o lote é refeito a partir dos slots
+        for (int i = 0; i < count; i++) ring.get(first + i).clear();
+        // no cluster, merchant de outro nó: a entrega fica gravada e o dono a pega na varredura de pendentes
+        for (var d : saved) {
+            if (cluster.owns(d.getMerchantId())) dispatch(d.getId());
+        }
+    }
+
+    // caminho lento depois de falhas repetidas: cada evento em sua própria gravação, e o que falhar é descartado
+    private void persistEach(RingBuffer<WebhookEvent> ring, long first, int count) {
+        for (int i = 0; i < count; i++) {
+            var event = ring.get(first + i);
+            try {
+                var delivery = prepare(event, merchantRepository.findById(event.merchantId).orElse(null));
+                if (delivery != null) {
+                    var saved = deliveries.save(delivery);
+                    if (cluster.owns(saved.getMerchantId())) dispatch(saved.getId());
+                }
+            } catch (RuntimeException e) {
+                log.error("Webhook {} do pagamento {} (merchant {}) descartado: falhou ao ser gravado sozinho",
+                        event.eventType, event.paymentId, event.merchantId, e);
+            } finally {
+                event.clear();
+            }
+        }
+    }
 
-            var event = new MerchantWebhookDto("evt_" + UUID.randomUUID().toString().substring(0, 8),
-                    "payment.updated",
-                    data);
+    private WebhookDelivery prepare(WebhookEvent event, Merchant merchant) {
+        if (merchant == null || merchant.getWebhookUrl() == null || merchant.getWebhookUrl().isBlank()) return null;
 
-            payload = objectMapper.writeValueAsString(event);
+        var eventId = "evt_" + UUID.randomUUID().toString().substring(0, 8);
+        String payload;
+        try {
+            var dto = new MerchantWebhookDto(eventId, event.eventType, event.data);
+
+            payload = objectMapper.writeValueAsString(dto);
         } catch (Exception e) {
             // fallback mínimo: não envia webhook se falhar a serialização
-            return;
+            return null;
         }
 
-        String signature = encodingService.executeEncodingStrategy(payload, secret);
+        String signature;
+        try (var phase = Phases.start("webhook", "sign")) {
+            signature = encodingService.executeEncodingStrategy(payload, secret);
+        }
 
-        var delivery = deliveries.save(WebhookDelivery.builder()
-                .eventId("evt_" + UUID.randomUUID().toString().substring(0, 8))
-                .eventType("payment.updated")
-                .paymentId(p.getId())
+        return WebhookDelivery.builder()
+                .eventId(eventId)
+                .eventType(event.eventType)
+                .paymentId(event.paymentId)
+                .merchantId(event.merchantId)
                 .targetUrl(merchant.getWebhookUrl())
                 .signature(signature)
                 .payload(payload)
                 .attempts(0)
                 .delivered(false)
                 .lastAttemptAt(null)
-                .build());
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static final class WebhookEvent {
+        Long merchantId;
+        String paymentId;
+        String eventType;
+        Object data;
+
+        void clear() {
+            merchantId = null;
+            paymentId = null;
+            eventType = null;
+            data = null;
+        }
+    }
 
-        executorService.submit(() -> tryDeliver(delivery.getId()));
+    /**
+     * Retoma entregas pendentes dos merchants deste nó: nunca tentadas (recusadas com a fila cheia, gravadas por
+     * outro nó do cluster) ou sem tentativa recente (retry perdido num restart, dono anterior que saiu).
+     * Para quando a fila enche; o resto fica para a próxima passada.
+     * */
+    @Scheduled(fixedDelayString = "${fiadopay.webhook.redispatch-interval-ms}")
+    public void redispatchStalled() {
+        try {
+            var merchantIds = deliveries.findMerchantIdsWithUndelivered(WebhookDelivery.MAX_ATTEMPTS).stream()
+                    .filter(cluster::owns)
+                    .toList();
+            if (merchantIds.isEmpty()) return;
+            var now = Instant.now();
+            var newBefore = now.minusMillis(redispatchNewAfterMs);
+            var staleBefore = now.minusMillis(redispatchAfterMs);
+            for (int page = 0; ; page++) {
+                var batch = deliveries.findStale(merchantIds, WebhookDelivery.MAX_ATTEMPTS, newBefore, staleBefore,
+                        PageRequest.of(page, REDISPATCH_PAGE));
+                for (var d : batch) {
+                    if (executorService.getQueue().remainingCapacity() == 0) return;
+                    dispatch(d.getId());
+                }
+                if (batch.size() < REDISPATCH_PAGE) return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha na varredura de webhooks pendentes", e);
+        }
+    }
+
+    private void dispatch(Long deliveryId) {
+        if (inFlight.add(deliveryId)) executorService.execute(new DeliveryTask(deliveryId));
+    }
+
+    // tarefa com o id à vista, para a recusa da fila saber qual entrega liberar
+    private final class DeliveryTask implements Runnable {
+        final Long deliveryId;
+
+        DeliveryTask(Long deliveryId) {
+            this.deliveryId = deliveryId;
+        }
+
+        @Override
+        public void run() {
+            tryDeliver(deliveryId);
+        }
     }
 
     private void tryDeliver(Long deliveryId) {
-        var d = deliveries.findById(deliveryId).orElse(null);
-        if (d == null) return;
-        try (var client = HttpClient.newHttpClient();) {
+        boolean retrying = false;
+        try {
+            var d = deliveries.findById(deliveryId).orElse(null);
+            if (d == null || d.isDelivered()) return;
+            if (!attempt(d) && d.getAttempts() < WebhookDelivery.MAX_ATTEMPTS) {
+                long delay = d.getAttempts() * 1000L;
+                scheduleRetry(deliveryId, delay);
+                retrying = true;
+            }
+        } finally {
+            if (!retrying) inFlight.remove(deliveryId);
+        }
+    }
+
+    /**
+     * Uma única tentativa síncrona, sem agendar retries. Usada pelo replay de entregas que esgotaram as tentativas.
+     * */
+    public boolean redeliver(WebhookDelivery d) {
+        return d.isDelivered() || attempt(d);
+    }
+
+    private boolean attempt(WebhookDelivery d) {
+        boolean delivered;
+        try {
             var req = HttpRequest.newBuilder(URI.create(d.getTargetUrl()))
+                    .timeout(Duration.ofSeconds(10))
                     .header("Content-Type", "application/json")
                     .header("X-Event-Type", d.getEventType())
                     .header("X-Signature", d.getSignature())
                     .POST(HttpRequest.BodyPublishers.ofString(d.getPayload()))
                     .build();
-            var res = client.send(req, HttpResponse.BodyHandlers.ofString());
-            d.setAttempts(d.getAttempts() + 1);
-            d.setLastAttemptAt(Instant.now());
-            d.setDelivered(res.statusCode() >= 200 && res.statusCode() < 300);
-            deliveries.save(d);
-            if (!d.isDelivered() && d.getAttempts() < 5) {
-                long delay = d.getAttempts() * 1000L;
-                scheduleRetry(deliveryId, delay);
+            try (var phase = Phases.start("webhook", "http")) {
+                var res = client.send(req, HttpResponse.BodyHandlers.discarding());
+                delivered = res.statusCode() >= 200 && res.statusCode() < 300;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delivered = false;
         } catch (Exception e) {
-            d.setAttempts(d.getAttempts() + 1);
-            d.setLastAttemptAt(Instant.now());
-            d.setDelivered(false);
-            deliveries.save(d);
-            if (d.getAttempts() < 5) {
-                long delay = d.getAttempts() * 1000L;
-                scheduleRetry(deliveryId, delay);
-            }
+            delivered = false;
         }
+        d.setAttempts(d.getAttempts() + 1);
+        d.setLastAttemptAt(Instant.now());
+        d.setDelivered(delivered);
+        deliveries.save(d);
+        return delivered;
     }
 
     private void scheduleRetry(Long deliveryId, long delayMs) {
@@ -1,32 +1,28 @@
 package edu.ucsal.fiadopay.application.provider.payment;
 
 import edu.ucsal.fiadopay.infrastructure.annotation.PaymentMethod;
-import jakarta.annotation.PostConstruct;
-import org.springframework.context.ApplicationContext;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class PaymentMethodRegistry {
 
     private final Map<String, PaymentProvider> paymentProviders = new HashMap<>();
-    private final ApplicationContext applicationContext;
 
-    public PaymentMethodRegistry(ApplicationContext applicationContext) {
-        this.applicationContext = applicationContext;
-    }
-
-    @PostConstruct
-    public void setProcessors() {
-
-        Map<String, Object> beans = applicationContext.getBeansWithAnnotation(PaymentMethod.class);
-
-        for(Object bean : beans.values()) {
-            PaymentMethod paymentMethod = bean.getClass().getAnnotation(PaymentMethod.class);
-            if (paymentMethod != null && bean instanceof PaymentProvider) {
-                paymentProviders.put(paymentMethod.paymentType(), (PaymentProvider) bean);
+    /**
+     * Os providers chegam por injeção de tipo, em vez de uma busca no contexto por anotação. Com o Spring AOT as
+     * definições desses beans são geradas no build, mas a injeção da lista e a leitura de {@link PaymentMethod}
+     * por reflexão continuam acontecendo na inicialização. A anotação só dá o nome do método.
+     * */
+    public PaymentMethodRegistry(List<PaymentProvider> providers) {
+        for (PaymentProvider provider : providers) {
+            PaymentMethod paymentMethod = AopUtils.getTargetClass(provider).getAnnotation(PaymentMethod.class);
+            if (paymentMethod != null) {
+                paymentProviders.put(paymentMethod.paymentType(), provider);
             }
         }
     }
@@ -0,0 +1,297 @@
+package edu.ucsal.fiadopay.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.domain.model.Refund;
+import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
+import edu.ucsal.fiadopay.domain.repository.PaymentRepository;
+import edu.ucsal.fiadopay.domain.repository.RefundRepository;
+import edu.ucsal.fiadopay.domain.repository.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.infrastructure.archive.ArchiveSegmentStore;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import edu.ucsal.fiadopay.infrastructure.cluster.DirectoryLock;
+import edu.ucsal.fiadopay.infrastructure.ledger.PaymentEventLedger;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Move para o arquivo morto em disco os pagamentos em status final e os webhooks entregues mais antigos que a
+ * retenção, apagando-os do banco em memória. Cada lote é gravado e sincronizado antes do DELETE: uma queda no meio
+ * deixa o registro nos dois lugares (a leitura prefere o banco), nunca em nenhum. Junto com o pagamento vão os
+ * reembolsos dele e a linha do tempo do ledger, que sai do índice em memória.
+ * <p>
+ * Um pagamento aprovado arquivado ainda aceita reembolso: o pedido o restaura na tabela, e o próximo arquivamento
+ * grava a linha do tempo nova depois da que já estava no arquivo. A retenção é o prazo para reexportar a liquidação
+ * de um dia.
+ * <p>
+ * No cluster só o líder arquiva, e cada passada ainda segura a {@link DirectoryLock} do diretório: dois nós que se
+ * achem líder durante uma troca do anel não gravam segmentos ao mesmo tempo. Os demais nós, a cada passada, tiram do
+ * seu ledger os pagamentos que o líder já arquivou.
+ * */
+@Service
+public class ArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+    private static final EnumSet<Payment.Status> FINAL_STATUSES =
+            EnumSet.of(Payment.Status.APPROVED, Payment.Status.DECLINED, Payment.Status.EXPIRED, Payment.Status.REFUNDED);
+
+    private final PaymentRepository payments;
+    private final RefundRepository refunds;
+    private final WebhookDeliveryRepository deliveries;
+    private final PaymentEventLedger ledger;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ClusterMembership cluster;
+
+    private ArchiveSegmentStore paymentArchive;
+    private ArchiveSegmentStore deliveryArchive;
+    // índice secundário: chave {hash(merchantId:metadataOrderId)}:{paymentId}, sem valor
+    private ArchiveSegmentStore orderArchive;
+    private ArchiveSegmentStore eventArchive;
+    private ArchiveSegmentStore refundArchive;
+
+    @Value("${fiadopay.archive.dir}")
+    String dir;
+    @Value("${fiadopay.archive.retention}")
+    Duration retention;
+    @Value("${fiadopay.archive.batch-size}")
+    int batchSize;
+
+    public ArchiveService(PaymentRepository payments, RefundRepository refunds, WebhookDeliveryRepository deliveries,
+                          PaymentEventLedger ledger, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                          ClusterMembership cluster) {
+        this.payments = payments;
+        this.refunds = refunds;
+        this.deliveries = deliveries;
+        this.ledger = ledger;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cluster = cluster;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        paymentArchive = new ArchiveSegmentStore(Path.of(dir), "payments");
+        deliveryArchive = new ArchiveSegmentStore(Path.of(dir), "webhooks");
+        orderArchive = new ArchiveSegmentStore(Path.of(dir), "payment-orders");
+        eventArchive = new ArchiveSegmentStore(Path.of(dir), "payment-events");
+        refundArchive = new ArchiveSegmentStore(Path.of(dir), "refunds");
+        log.info("Arquivo morto em {}: {} segmento(s) de pagamentos, {} de webhooks",
+                dir, paymentArchive.segmentCount(), deliveryArchive.segmentCount());
+    }
+
+    @Scheduled(fixedDelayString = "${fiadopay.archive.interval-ms}", initialDelayString = "${fiadopay.archive.interval-ms}")
+    public synchronized void archive() {
+        var cutoff = Instant.now().minus(retention);
+        if (cluster.isLeader()) archiveAndCompact(cutoff);
+        // só o líder arquiva e tira do seu ledger; os outros nós têm ledger próprio e limpam o índice pelo arquivo
+        if (cluster.enabled()) forgetArchived(cutoff);
+    }
+
+    private void archiveAndCompact(Instant cutoff) {
+        try (var lock = DirectoryLock.tryAcquire(Path.of(dir))) {
+            if (lock == null) {
+                log.info("Arquivo morto em uso por outro nó; passada ignorada");
+                return;
+            }
+            long archivedPayments = archiveAll(paymentArchive,
+                    () -> payments.findArchivable(FINAL_STATUSES, cutoff, PageRequest.of(0, batchSize)),
+                    Payment::getId, this::writeRelated, ids -> deletePayments(ids, cutoff));
+            long archivedDeliveries = archiveAll(deliveryArchive,
+                    () -> deliveries.findArchivable(cutoff, PageRequest.of(0, batchSize)),
+                    WebhookDelivery::getId, rows -> { }, deliveries::deleteAllByIdInBatch);
+            if (archivedPayments + archivedDeliveries > 0) {
+                log.info("Arquivados {} pagamento(s) e {} webhook(s) anteriores a {}", archivedPayments, archivedDeliveries, cutoff);
+            }
+            int merges = 0;
+            for (var store : List.of(paymentArchive, deliveryArchive, orderArchive, eventArchive, refundArchive)) {
+                merges += store.compact();
+            }
+            if (merges > 0) log.info("Arquivo morto compactado: {} fusão(ões) de segmentos", merges);
+        } catch (IOException e) {
+            log.warn("Falha de E/S no arquivo morto", e);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao arquivar registros anteriores a {}", cutoff, e);
+        }
+    }
+
+    // candidatos são os parados desde antes da retenção; sai do índice o que não está mais na tabela e está no arquivo
+    private void forgetArchived(Instant cutoff) {
+        try {
+            var idle = ledger.idsIdleSince(cutoff);
+            int forgotten = 0;
+            for (int from = 0; from < idle.size(); from += batchSize) {
+                var chunk = idle.subList(from, Math.min(idle.size(), from + batchSize));
+                var present = new HashSet<>(readOnlyTransaction.execute(status -> payments.findExistingIds(chunk)));
+                var missing = chunk.stream().filter(id -> !present.contains(id)).toList();
+                if (missing.isEmpty()) continue;
+                var archived = paymentArchive.readAll(missing).keySet();
+                ledger.forget(archived);
+                forgotten += archived.size();
+            }
+            if (forgotten > 0) log.info("{} pagamento(s) arquivado(s) pelo líder saíram do ledger do nó {}", forgotten, cluster.nodeId());
+        } catch (RuntimeException e) {
+            log.warn("Falha ao limpar do ledger os pagamentos arquivados", e);
+        }
+    }
+
+    public Optional<Payment> findPayment(String id) {
+        return Optional.ofNullable(read(paymentArchive, id, Payment.class));
+    }
+
+    /** Ids dos pagamentos arquivados do merchant com o {@code metadataOrderId}. */
+    public List<String> findPaymentIdsByOrder(long merchantId, String orderId) {
+        var keyPrefix = orderKeyPrefix(merchantId, orderId);
+        return orderArchive.keysStartingWith(keyPrefix).stream()
+                .map(key -> key.substring(keyPrefix.length()))
+                .toList();
+    }
+
+    /** Pagamentos arquivados dentre os ids, numa passada por segmento. */
+    public Map<String, Payment> findPayments(Collection<String> ids) {
+        var found = new HashMap<String, Payment>();
+        if (ids.isEmpty()) return found;
+        paymentArchive.readAll(ids).forEach((id, bytes) -> found.put(id, parse(bytes, Payment.class)));
+        return found;
+    }
+
+    public List<PaymentEventLedger.Entry> findEvents(String paymentId) {
+        var entries = read(eventArchive, paymentId, PaymentEventLedger.Entry[].class);
+        return entries == null ? List.of() : List.of(entries);
+    }
+
+    public Optional<Refund> findRefund(String id) {
+        return Optional.ofNullable(read(refundArchive, id, Refund.class));
+    }
+
+    // sempre a primeira página: o lote anterior já saiu da tabela
+    private <T, ID> long archiveAll(ArchiveSegmentStore store, Supplier<List<T>> nextBatch,
+                                    Function<T, ID> id, Consumer<List<T>> alsoWrite, Consumer<List<ID>> delete) {
+        long archived = 0;
+        List<T> batch;
+        do {
+            batch = readOnlyTransaction.execute(status -> nextBatch.get());
+            if (batch == null || batch.isEmpty()) break;
+
+            var records = new TreeMap<String, byte[]>();
+            for (var row : batch) {
+                try {
+                    records.put(id.apply(row).toString(), objectMapper.writeValueAsBytes(row));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            try {
+                store.write(records);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            alsoWrite.accept(batch);
+            var ids = batch.stream().map(id).toList();
+            transaction.executeWithoutResult(status -> delete.accept(ids));
+            archived += batch.size();
+        } while (batch.size() == batchSize);
+        return archived;
+    }
+
+    // índice por pedido, linha do tempo do ledger e reembolsos, gravados antes do DELETE como o próprio pagamento
+    private void writeRelated(List<Payment> batch) {
+        var orders = new TreeMap<String, byte[]>();
+        var events = new TreeMap<String, byte[]>();
+        var refundRecords = new TreeMap<String, byte[]>();
+        try {
+            var ids = batch.stream().map(Payment::getId).toList();
+            // pagamento restaurado para reembolso: o ledger só tem o que veio depois da restauração
+            var archivedEvents = eventArchive.readAll(ids);
+            for (var p : batch) {
+                if (p.getMetadataOrderId() != null) {
+                    orders.put(orderKeyPrefix(p.getMerchantId(), p.getMetadataOrderId()) + p.getId(), new byte[0]);
+                }
+                var entries = new ArrayList<PaymentEventLedger.Entry>();
+                var previous = archivedEvents.get(p.getId());
+                if (previous != null) entries.addAll(List.of(parse(previous, PaymentEventLedger.Entry[].class)));
+                entries.addAll(ledger.read(p.getId()));
+                if (!entries.isEmpty()) events.put(p.getId(), objectMapper.writeValueAsBytes(entries));
+            }
+            for (var r : readOnlyTransaction.execute(status -> refunds.findByPaymentIdIn(ids))) {
+                refundRecords.put(r.getId(), objectMapper.writeValueAsBytes(r));
+            }
+            orderArchive.write(orders);
+            eventArchive.write(events);
+            refundArchive.write(refundRecords);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // o lote foi lido sem lock: sob o mesmo lock do pedido de reembolso, fica na tabela quem ganhou reembolso
+    // PENDING ou foi restaurado nesse meio-tempo. A cópia já gravada no arquivo não atrapalha, a leitura prefere o banco
+    private void deletePayments(List<String> ids, Instant cutoff) {
+        var locked = payments.findAllByIdForUpdate(ids);
+        var withPending = new HashSet<>(refunds.findPaymentIdsWithPending(ids));
+        var removable = locked.stream()
+                .filter(p -> !withPending.contains(p.getId()) && p.getUpdatedAt().isBefore(cutoff))
+                .map(Payment::getId)
+                .toList();
+        if (removable.isEmpty()) return;
+        refunds.deleteByPaymentIdIn(removable);
+        payments.deleteAllByIdInBatch(removable);
+        ledger.forget(removable);
+    }
+
+    // o orderId é livre e não cabe nos 32 bytes da chave: 64 bits de SHA-256 bastam, o chamador confere o pagamento lido
+    private static String orderKeyPrefix(long merchantId, String orderId) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest((merchantId + ":" + orderId).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8) + ":";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T read(ArchiveSegmentStore store, String key, Class<T> type) {
+        var bytes = store.read(key);
+        return bytes == null ? null : parse(bytes, type);
+    }
+
+    private <T> T parse(byte[] bytes, Class<T> type) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.domain.repository.PaymentRepository;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * No modo cluster, assume os pagamentos PENDING dos merchants deste nó que nenhum nó vivo agendou: criados em outro
+ * nó ou herdados de um nó que saiu. Cada adoção grava o dono em {@code settlementOwner}, então a varredura só lê
+ * as linhas ainda sem dono. Webhooks pendentes são retomados pela varredura do próprio {@code WebhookListener}.
+ * */
+@Service
+@ConditionalOnProperty(name = "fiadopay.cluster.enabled", havingValue = "true")
+public class ClusterSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterSweeper.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final ClusterMembership cluster;
+    private final PaymentRepository payments;
+    private final PaymentService paymentService;
+    private volatile boolean released;
+
+    public ClusterSweeper(ClusterMembership cluster, PaymentRepository payments, PaymentService paymentService) {
+        this.cluster = cluster;
+        this.payments = payments;
+        this.paymentService = paymentService;
+    }
+
+    @Scheduled(fixedDelayString = "${fiadopay.cluster.sweep-interval-ms}")
+    public void sweep() {
+        try {
+            sweepPayments();
+        } catch (RuntimeException e) {
+            log.warn("Falha na varredura do cluster no nó {}", cluster.nodeId(), e);
+        }
+    }
+
+    private void sweepPayments() {
+        // antes do primeiro heartbeat o anel só tem este nó: assumiria o que os outros nós já agendaram
+        if (!cluster.ready()) return;
+        if (!released) {
+            int n = payments.releaseSettlements(cluster.nodeId());
+            if (n > 0) log.info("Nó {} reassumindo {} settlements de antes do reinício", cluster.nodeId(), n);
+            released = true;
+        }
+        var live = cluster.liveMembers();
+        var owned = payments.findMerchantIdsWithUnclaimed(live).stream().filter(cluster::owns).toList();
+        if (owned.isEmpty()) return;
+        while (true) {
+            // toda linha lida sai do resultado (assumida aqui ou por outro nó), então a primeira página basta
+            var batch = payments.findUnclaimed(owned, live, PageRequest.of(0, PAGE_SIZE));
+            for (var p : batch) {
+                // só agenda quem venceu o claim: outro nó pode ter assumido a linha depois da leitura
+                if (payments.claimSettlement(p.getId(), cluster.nodeId(), live) == 0) continue;
+                if (!paymentService.adoptPending(p)) {
+                    // admissão saturada: devolve a linha, e o resto fica para a próxima varredura
+                    payments.releaseSettlement(p.getId(), cluster.nodeId());
+                    return;
+                }
+            }
+            if (batch.size() < PAGE_SIZE) return;
+        }
+    }
+
+}
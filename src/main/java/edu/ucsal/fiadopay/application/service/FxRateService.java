@@ -0,0 +1,112 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.application.dto.response.FxRatesResponse;
+import edu.ucsal.fiadopay.application.fx.FxRateTable;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantém a tabela de câmbio vigente. A criação de pagamento só lê a referência atual, sem I/O nem lock;
+ * recarregar o arquivo ou receber taxas pelo admin monta uma tabela nova e a troca de uma vez.
+ * */
+@Service
+public class FxRateService {
+
+    private static final Logger log = LoggerFactory.getLogger(FxRateService.class);
+
+    private final ResourceLoader resourceLoader;
+    private final AtomicReference<FxRateTable> current = new AtomicReference<>();
+
+    @Value("${fiadopay.fx.settlement-currency}")
+    String settlementCurrency;
+    @Value("${fiadopay.fx.rates-location}")
+    String ratesLocation;
+
+    public FxRateService(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void init() {
+        current.set(loadFromFile());
+    }
+
+    public FxRateTable current() {
+        return current.get();
+    }
+
+    public FxRatesResponse getRates() {
+        return toResponse(current.get());
+    }
+
+    public FxRatesResponse replaceRates(Map<String, BigDecimal> rates) {
+        FxRateTable table;
+        try {
+            table = new FxRateTable(settlementCurrency, rates, "admin");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        current.set(table);
+        log.info("Tabela de câmbio substituída via admin com {} moeda(s)", table.rates().size());
+        return toResponse(table);
+    }
+
+    public FxRatesResponse reload() {
+        FxRateTable table;
+        try {
+            table = loadFromFile();
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        current.set(table);
+        return toResponse(table);
+    }
+
+    private FxRateTable loadFromFile() {
+        var resource = resourceLoader.getResource(ratesLocation);
+        if (!resource.exists()) {
+            log.warn("Arquivo de câmbio {} não encontrado; apenas {} será aceito", ratesLocation, settlementCurrency);
+            return new FxRateTable(settlementCurrency, Map.of(), ratesLocation);
+        }
+
+        var properties = new Properties();
+        try (var reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler " + ratesLocation, e);
+        }
+
+        var rates = new HashMap<String, BigDecimal>();
+        for (var name : properties.stringPropertyNames()) {
+            try {
+                rates.put(name, new BigDecimal(properties.getProperty(name).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Taxa inválida para " + name + " em " + ratesLocation);
+            }
+        }
+        var table = new FxRateTable(settlementCurrency, rates, ratesLocation);
+        log.info("Tabela de câmbio carregada de {} com {} moeda(s)", ratesLocation, table.rates().size());
+        return table;
+    }
+
+    private FxRatesResponse toResponse(FxRateTable table) {
+        return new FxRatesResponse(table.settlementCurrency(), table.rates(), table.source(), table.loadedAt());
+    }
+
+}
@@ -0,0 +1,90 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache LRU de {@code (merchantId, metadataOrderId) -> ids de pagamento}. Entradas só nascem de uma consulta ao banco
+ * (a da busca ou a feita na própria criação), então uma lista em cache está sempre completa; pagamentos criados depois
+ * disso são acrescentados após o commit.
+ * <p>
+ * Quem consulta o banco lê antes a geração da chave ({@link #generation}) e a devolve no {@link #put}. Cada criação
+ * avança a geração, então uma lista lida antes de um commit concorrente é descartada em vez de sobrescrever o cache
+ * sem o pagamento novo. As gerações são por faixa de hash, não por chave: colisão só custa um put descartado.
+ * */
+@Component
+public class OrderIdNearCache {
+
+    private record Key(long merchantId, String orderId) {
+    }
+
+    private static final int STRIPES = 1024;
+
+    private final int maxEntries;
+    private final Map<Key, List<String>> entries;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public OrderIdNearCache(@Value("${fiadopay.order-lookup.near-cache-size}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public boolean enabled() {
+        return maxEntries > 0;
+    }
+
+    public List<String> get(long merchantId, String orderId) {
+        return entries.get(new Key(merchantId, orderId));
+    }
+
+    public long generation(long merchantId, String orderId) {
+        return generations.get(stripe(new Key(merchantId, orderId)));
+    }
+
+    public void put(long merchantId, String orderId, List<String> paymentIds, long generation) {
+        var key = new Key(merchantId, orderId);
+        var ids = List.copyOf(paymentIds);
+        synchronized (entries) {
+            if (generations.get(stripe(key)) != generation) return;
+            entries.put(key, ids);
+        }
+    }
+
+    /**
+     * Chamado após o commit da criação. {@code knownIds}, se não nulo, é a lista lida na transação da criação com a
+     * geração {@code generation}: vira entrada quando nenhuma outra criação da faixa commitou desde a leitura.
+     * */
+    public void onCreated(Payment p, List<String> knownIds, long generation) {
+        if (p.getMetadataOrderId() == null) return;
+        var key = new Key(p.getMerchantId(), p.getMetadataOrderId());
+        synchronized (entries) {
+            if (knownIds != null && generations.get(stripe(key)) == generation) entries.putIfAbsent(key, List.copyOf(knownIds));
+            generations.incrementAndGet(stripe(key));
+            entries.computeIfPresent(key, (k, ids) -> {
+                if (ids.contains(p.getId())) return ids;
+                var updated = new ArrayList<>(ids);
+                updated.add(p.getId());
+                return List.copyOf(updated);
+            });
+        }
+    }
+
+    private static int stripe(Key key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+}
@@ -2,24 +2,45 @@ package edu.ucsal.fiadopay.application.service;
 
 import edu.ucsal.fiadopay.domain.model.Payment;
 import edu.ucsal.fiadopay.application.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.application.dto.response.PaymentEventResponse;
 import edu.ucsal.fiadopay.application.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.application.dto.response.PaymentStatusResponse;
+import edu.ucsal.fiadopay.application.dto.PaymentCreatedEvent;
 import edu.ucsal.fiadopay.application.dto.PaymentUpdatedEvent;
+import edu.ucsal.fiadopay.application.fx.FxRateTable;
 import edu.ucsal.fiadopay.application.provider.payment.PaymentProvider;
 import edu.ucsal.fiadopay.application.provider.payment.PaymentMethodRegistry;
+import edu.ucsal.fiadopay.application.simulation.DecisionEngine;
+import edu.ucsal.fiadopay.application.simulation.SettlementSimulator;
 import edu.ucsal.fiadopay.domain.repository.PaymentRepository;
+import edu.ucsal.fiadopay.infrastructure.admission.AdaptiveConcurrencyLimiter;
+import edu.ucsal.fiadopay.infrastructure.admission.OverloadedException;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import edu.ucsal.fiadopay.infrastructure.ledger.PaymentEventLedger;
+import edu.ucsal.fiadopay.infrastructure.observability.Phases;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
@@ -27,100 +48,317 @@ public class PaymentService {
     private final MerchantService merchantService;
     private final PaymentRepository payments;
     private final PaymentMethodRegistry paymentMethodRegistry;
+    private final PaymentEventLedger ledger;
+    private final SettlementSimulator simulator;
+    private final DecisionEngine decisionEngine;
+    private final AdaptiveConcurrencyLimiter admission;
+    private final OrderIdNearCache orderIdCache;
+    private final FxRateService fxRates;
+    private final ArchiveService archive;
+    private final ClusterMembership cluster;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(5);
+    // pagamentos com settlement agendado neste nó, para a varredura do cluster não agendar de novo
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
     private final ApplicationEventPublisher events;
 
-    @Value("${fiadopay.processing-delay-ms}")
-    long delay;
-    @Value("${fiadopay.failure-rate}")
-    double failRate;
+    @Value("${fiadopay.admission.retry-after-seconds}")
+    long retryAfterSeconds;
 
-    public PaymentService(MerchantService merchantService, PaymentRepository payments, PaymentMethodRegistry paymentMethodRegistry, ApplicationEventPublisher events) {
+    public PaymentService(MerchantService merchantService, PaymentRepository payments, PaymentMethodRegistry paymentMethodRegistry, PaymentEventLedger ledger,
+                          SettlementSimulator simulator, DecisionEngine decisionEngine, AdaptiveConcurrencyLimiter admission, OrderIdNearCache orderIdCache,
+                          FxRateService fxRates, ArchiveService archive, ClusterMembership cluster, ApplicationEventPublisher events) {
         this.merchantService = merchantService;
         this.payments = payments;
         this.paymentMethodRegistry = paymentMethodRegistry;
+        this.ledger = ledger;
+        this.simulator = simulator;
+        this.decisionEngine = decisionEngine;
+        this.admission = admission;
+        this.orderIdCache = orderIdCache;
+        this.fxRates = fxRates;
+        this.archive = archive;
+        this.cluster = cluster;
         this.events = events;
     }
 
     @Transactional
     public PaymentResponse createPayment(String auth, String idemKey, PaymentRequest req) {
-        var merchant = merchantService.merchantFromAuth(auth);
+        var merchant = Phases.time("request", "auth", () -> merchantService.merchantFromAuth(auth));
         var mid = merchant.getId();
 
         if (idemKey != null) {
-            var existing = payments.findByIdempotencyKeyAndMerchantId(idemKey, mid);
+            var existing = Phases.time("request", "idempotency", () -> payments.findByIdempotencyKeyAndMerchantId(idemKey, mid));
             if (existing.isPresent()) return toResponse(existing.get());
         }
 
-        PaymentProvider paymentProvider = paymentMethodRegistry.getProvider(req.method());
-        Double interest = paymentProvider.interest();
-        BigDecimal total = paymentProvider.calculateTotal(req.amount(), req.installments());
+        var fx = fxRates.current();
+        var fxRate = fx.rate(req.currency());
+        if (fxRate == null) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Moeda não suportada: " + req.currency());
+        }
+
+        // admissão antes de qualquer escrita: saturado, recusa com 503 em vez de acumular trabalho
+        if (!admission.tryAcquire()) {
+            throw new OverloadedException(retryAfterSeconds);
+        }
+        if (!admission.tryReserveScheduled()) {
+            admission.release();
+            throw new OverloadedException(retryAfterSeconds);
+        }
+        var settlement = new PendingSettlement();
+        settlement.admittedAt = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(settlement);
+
+        Double interest;
+        BigDecimal total;
+        BigDecimal settlementAmount;
+        try (var phase = Phases.start("request", "pricing")) {
+            PaymentProvider paymentProvider = paymentMethodRegistry.getProvider(req.method());
+            interest = paymentProvider.interest();
+            total = paymentProvider.calculateTotal(req.amount(), req.installments());
+            settlementAmount = FxRateTable.convert(total, fxRate);
+        }
 
+        var now = Instant.now();
+        long delayMs = simulator.sampleDelayMs(req.method().toUpperCase());
+        // no cluster, o nó que cria só fica com o settlement se o merchant é dele; senão o dono assume pela varredura
+        var owner = cluster.owns(mid) ? cluster.nodeId() : null;
         var payment = Payment.builder()
                 .id("pay_" + UUID.randomUUID().toString().substring(0, 8))
                 .merchantId(mid)
                 .method(req.method().toUpperCase())
                 .amount(req.amount())
-                .currency(req.currency())
+                .currency(req.currency().trim().toUpperCase())
                 .installments(req.installments())
                 .monthlyInterest(interest)
                 .totalWithInterest(total)
+                .settlementCurrency(fx.settlementCurrency())
+                .fxRate(fxRate)
+                .settlementAmount(settlementAmount)
                 .status(Payment.Status.PENDING)
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
+                .createdAt(now)
+                .updatedAt(now)
+                .settleAt(now.plusMillis(delayMs))
+                .settlementOwner(owner)
                 .idempotencyKey(idemKey)
                 .metadataOrderId(req.metadataOrderId())
                 .build();
 
-        payments.save(payment);
+        try (var phase = Phases.start("request", "save")) {
+            payments.save(payment);
+        }
+        events.publishEvent(new PaymentCreatedEvent(payment));
+
+        // pedido fora do near-cache: a lista lida aqui, já com este pagamento, entra no cache após o commit, e a
+        // busca logo depois da criação não vai ao banco
+        var orderId = payment.getMetadataOrderId();
+        if (orderId != null && orderIdCache.enabled() && orderIdCache.get(mid, orderId) == null) {
+            settlement.orderGeneration = orderIdCache.generation(mid, orderId);
+            var known = new LinkedHashSet<>(lookupOrderIds(mid, orderId));
+            known.add(payment.getId());
+            settlement.orderIds = List.copyOf(known);
+        }
 
-        executorService.submit( () -> processAndPublish(payment.getId()));
+        settlement.payment = payment;
+        settlement.paymentId = payment.getId();
+        settlement.claimed = owner != null;
+        settlement.delayMs = delayMs;
         return toResponse(payment);
     }
 
     public PaymentResponse getPayment(String id) {
         return toResponse(payments.findById(id)
+                .or(() -> archive.findPayment(id))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
     }
 
-    public Map<String, Object> refund(String auth, String paymentId) {
+    // banco antes do arquivo morto: o arquivamento grava no disco antes de apagar, então nenhum id escapa dos dois
+    private List<String> lookupOrderIds(long merchantId, String orderId) {
+        var all = new LinkedHashSet<>(payments.findIdsByMerchantIdAndMetadataOrderId(merchantId, orderId));
+        all.addAll(archive.findPaymentIdsByOrder(merchantId, orderId));
+        return List.copyOf(all);
+    }
+
+    public List<PaymentResponse> findByOrderId(String auth, String orderId) {
         var merchant = merchantService.merchantFromAuth(auth);
-        var p = payments.findById(paymentId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        if (!merchant.getId().equals(p.getMerchantId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        var ids = orderIdCache.get(merchant.getId(), orderId);
+        if (ids == null) {
+            long generation = orderIdCache.generation(merchant.getId(), orderId);
+            ids = lookupOrderIds(merchant.getId(), orderId);
+            orderIdCache.put(merchant.getId(), orderId, ids, generation);
+        }
+        if (ids.isEmpty()) return List.of();
+        var found = new ArrayList<>(payments.findAllById(ids));
+        if (found.size() < ids.size()) {
+            // arquivados, ou arquivados depois de entrar no cache
+            var hot = found.stream().map(Payment::getId).collect(Collectors.toSet());
+            found.addAll(archive.findPayments(ids.stream().filter(id -> !hot.contains(id)).toList()).values());
         }
-        p.setStatus(Payment.Status.REFUNDED);
-        p.setUpdatedAt(Instant.now());
-        payments.save(p);
+        return found.stream()
+                .filter(p -> merchant.getId().equals(p.getMerchantId()) && orderId.equals(p.getMetadataOrderId()))
+                .sorted(Comparator.comparing(Payment::getCreatedAt))
+                .map(this::toResponse)
+                .toList();
+    }
 
-        events.publishEvent(new PaymentUpdatedEvent(p));
+    /**
+     * Status de vários pagamentos do merchant numa única consulta. Ids ausentes da tabela são procurados juntos no
+     * arquivo morto, numa passada por segmento; os que não existem ou são de outro merchant voltam como
+     * {@code NOT_FOUND}, na ordem pedida.
+     * */
+    public List<PaymentStatusResponse> getStatuses(String auth, List<String> ids) {
+        var merchant = merchantService.merchantFromAuth(auth);
+        var unique = new LinkedHashSet<>(ids);
 
-        return Map.of("id", "ref_" + UUID.randomUUID(), "status", "PENDING");
+        var found = new HashMap<String, PaymentStatusResponse>();
+        for (var view : payments.findStatuses(merchant.getId(), unique)) {
+            found.put(view.getId(), new PaymentStatusResponse(view.getId(), view.getStatus().name(), view.getUpdatedAt()));
+        }
+        var missing = unique.stream().filter(id -> !found.containsKey(id)).toList();
+        archive.findPayments(missing).forEach((id, p) -> {
+            if (merchant.getId().equals(p.getMerchantId())) {
+                found.put(id, new PaymentStatusResponse(id, p.getStatus().name(), p.getUpdatedAt()));
+            }
+        });
+        return unique.stream()
+                .map(id -> found.getOrDefault(id, new PaymentStatusResponse(id, "NOT_FOUND", null)))
+                .toList();
     }
 
-    private void processAndPublish(String paymentId) {
+    public List<PaymentEventResponse> getPaymentEvents(String id) {
+        // cada nó tem seu próprio ledger: no cluster a linha do tempo sairia só com os eventos do nó que atendeu
+        if (cluster.enabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "Linha do tempo indisponível no modo cluster");
+        }
+        var entries = ledger.read(id);
+        // arquivado: a linha do tempo saiu do índice do ledger e foi junto para o arquivo morto
+        if (entries.isEmpty() && !payments.existsById(id)) {
+            entries = archive.findEvents(id);
+            if (entries.isEmpty() && archive.findPayment(id).isEmpty()) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return entries.stream()
+                .map(e -> new PaymentEventResponse(e.sequence(), e.type().name(),
+                        e.from() == null ? null : e.from().name(), e.to().name(), e.amount(), e.occurredAt()))
+                .toList();
+    }
+
+    /**
+     * Assume o settlement de um pagamento PENDING de um merchant deste nó criado em outro nó, ou herdado de um nó que
+     * saiu. Mantém o {@code settleAt} sorteado na criação; só reserva vaga de agendado, sem permissão do limite
+     * adaptativo, que é tomada quando o settlement roda. Devolve {@code false} se não há vaga.
+     * */
+    public boolean adoptPending(Payment p) {
+        if (scheduled.contains(p.getId())) return true;
+        if (!admission.tryReserveScheduled()) return false;
+        // linhas anteriores ao settleAt não têm prazo gravado: liquidam assim que adotadas
+        var settleAt = p.getSettleAt() != null ? p.getSettleAt() : p.getCreatedAt();
+        long remaining = settleAt.toEpochMilli() - System.currentTimeMillis();
         try {
-            Thread.sleep(delay);
-        } catch (InterruptedException ignored) {
+            scheduleSettlement(p.getId(), Math.max(0, remaining));
+        } catch (RuntimeException e) {
+            admission.releaseScheduled();
+            throw e;
+        }
+        return true;
+    }
+
+    // agenda o settlement em vez de bloquear uma thread com sleep: latências de BOLETO chegam a dias.
+    // Quem chama já reservou a vaga de agendado; a permissão do limite adaptativo só é tomada quando o settlement roda
+    private void scheduleSettlement(String paymentId, long delayMs) {
+        if (!scheduled.add(paymentId)) {
+            admission.releaseScheduled();
+            return;
+        }
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        executorService.schedule(() -> {
+            admission.enter();
+            boolean success = false;
+            try {
+                processAndPublish(paymentId);
+                success = true;
+            } finally {
+                scheduled.remove(paymentId);
+                admission.releaseScheduled();
+                admission.release(System.nanoTime() - due, success);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Segura a permissão de admissão até o fim da transação de criação, com a latência da admissão ao commit como
+     * amostra. O settlement só é agendado depois do commit, quando o pagamento já está visível para a thread do
+     * settlement, e passa a ocupar só a vaga de agendado; em rollback as duas são devolvidas.
+     * O registro CREATED do ledger também só é gravado depois do commit, para um rollback não deixar evento órfão.
+     * */
+    private class PendingSettlement implements TransactionSynchronization {
+        Payment payment;
+        String paymentId;
+        boolean claimed;
+        List<String> orderIds;
+        long orderGeneration;
+        long delayMs;
+        long admittedAt;
+        Phases.Phase commitPhase;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitPhase = Phases.start("request", "commit");
         }
-        var p = payments.findById(paymentId).orElse(null);
-        if (p == null) return;
 
-        var approved = Math.random() > failRate;
-        p.setStatus(approved ? Payment.Status.APPROVED : Payment.Status.DECLINED);
-        p.setUpdatedAt(Instant.now());
-        payments.save(p);
+        @Override
+        public void afterCommit() {
+            if (payment != null) {
+                orderIdCache.onCreated(payment, orderIds, orderGeneration);
+                ledger.append(payment, null);
+            }
+            if (paymentId == null || !claimed) {
+                admission.releaseScheduled();
+                return;
+            }
+            try {
+                scheduleSettlement(paymentId, delayMs);
+            } catch (RuntimeException e) {
+                admission.releaseScheduled();
+                throw e;
+            }
+        }
 
-        events.publishEvent(new PaymentUpdatedEvent(p));
+        @Override
+        public void afterCompletion(int status) {
+            // flush dos INSERTs + commit do banco
+            if (commitPhase != null) commitPhase.close();
+            boolean committed = status == STATUS_COMMITTED;
+            if (!committed) admission.releaseScheduled();
+            admission.release(System.nanoTime() - admittedAt, committed);
+        }
+    }
+
+    private void processAndPublish(String paymentId) {
+        var p = Phases.time("settlement", "load", () -> payments.findById(paymentId).orElse(null));
+        if (p == null || p.getStatus() != Payment.Status.PENDING) return;
+
+        var previous = p.getStatus();
+        var outcome = Phases.time("settlement", "decide", () -> decisionEngine.decide(p));
+        var now = Instant.now();
+        try (var phase = Phases.start("settlement", "save")) {
+            if (payments.settleIfPending(p.getId(), outcome, now) == 0) return;
+            p.setStatus(outcome);
+            p.setUpdatedAt(now);
+            ledger.append(p, previous);
+        }
+
+        try (var phase = Phases.start("settlement", "publish")) {
+            events.publishEvent(new PaymentUpdatedEvent(p));
+        }
     }
 
     private PaymentResponse toResponse(Payment p) {
         return new PaymentResponse(
                 p.getId(), p.getStatus().name(), p.getMethod(),
                 p.getAmount(), p.getInstallments(), p.getMonthlyInterest(),
-                p.getTotalWithInterest()
+                p.getTotalWithInterest(), p.getCurrency(), p.getSettlementCurrency(),
+                p.getFxRate(), p.getSettlementAmount()
         );
     }
 
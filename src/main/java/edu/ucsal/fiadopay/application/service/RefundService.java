@@ -0,0 +1,192 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.application.dto.PaymentUpdatedEvent;
+import edu.ucsal.fiadopay.application.dto.RefundUpdatedEvent;
+import edu.ucsal.fiadopay.application.dto.request.RefundRequest;
+import edu.ucsal.fiadopay.application.dto.response.RefundResponse;
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.domain.model.Refund;
+import edu.ucsal.fiadopay.domain.repository.PaymentRepository;
+import edu.ucsal.fiadopay.domain.repository.RefundRepository;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import edu.ucsal.fiadopay.infrastructure.ledger.PaymentEventLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reembolsos são aceitos como PENDING na requisição e liquidados em lote, agrupados por merchant, por um job periódico.
+ * Cada mudança de estado publica um {@link RefundUpdatedEvent}, entregue como webhook fora da thread da requisição.
+ * */
+@Service
+public class RefundService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefundService.class);
+
+    private final MerchantService merchantService;
+    private final PaymentRepository payments;
+    private final RefundRepository refunds;
+    private final PaymentEventLedger ledger;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate restoreTransaction;
+    private final ClusterMembership cluster;
+    private final ArchiveService archive;
+
+    @Value("${fiadopay.refunds.batch-size}")
+    int batchSize;
+
+    public RefundService(MerchantService merchantService, PaymentRepository payments, RefundRepository refunds, PaymentEventLedger ledger,
+                         ApplicationEventPublisher events, PlatformTransactionManager transactionManager, ClusterMembership cluster,
+                         ArchiveService archive) {
+        this.merchantService = merchantService;
+        this.payments = payments;
+        this.refunds = refunds;
+        this.ledger = ledger;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.restoreTransaction = new TransactionTemplate(transactionManager);
+        this.restoreTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cluster = cluster;
+        this.archive = archive;
+    }
+
+    @Transactional
+    public RefundResponse requestRefund(String auth, RefundRequest req) {
+        var merchant = merchantService.merchantFromAuth(auth);
+        var p = payments.findByIdForUpdate(req.paymentId())
+                .orElseGet(() -> restoreArchived(req.paymentId(), merchant.getId()));
+        if (!merchant.getId().equals(p.getMerchantId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        if (p.getStatus() != Payment.Status.APPROVED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Pagamento não pode ser reembolsado no status " + p.getStatus());
+        }
+
+        // o lock no pagamento serializa pedidos concorrentes, então a soma reservada não ultrapassa o total.
+        // Os liquidados vêm do refundedAmount: os de um pagamento restaurado continuam só no arquivo morto
+        var settled = p.getRefundedAmount() == null ? BigDecimal.ZERO : p.getRefundedAmount();
+        var reserved = settled.add(refunds.sumAmountByPaymentIdAndStatusIn(p.getId(), EnumSet.of(Refund.Status.PENDING)));
+        var available = p.getTotalWithInterest().subtract(reserved);
+        var amount = req.amount() == null ? available : req.amount();
+        if (amount.signum() <= 0 || amount.compareTo(available) > 0) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Valor de reembolso excede o saldo disponível de " + available);
+        }
+
+        var now = Instant.now();
+        var refund = refunds.save(Refund.builder()
+                .id("ref_" + UUID.randomUUID().toString().substring(0, 8))
+                .paymentId(p.getId())
+                .merchantId(p.getMerchantId())
+                .amount(amount)
+                .status(Refund.Status.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        events.publishEvent(new RefundUpdatedEvent(refund));
+        return new RefundResponse(refund);
+    }
+
+    /**
+     * Pagamento aprovado que já foi para o arquivo morto volta para a tabela, numa transação própria, para o reembolso
+     * seguir o caminho normal com lock. O {@code updatedAt} é renovado para o arquivamento não o levar de novo antes
+     * do reembolso ser liquidado.
+     * */
+    private Payment restoreArchived(String paymentId, Long merchantId) {
+        var archived = archive.findPayment(paymentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!merchantId.equals(archived.getMerchantId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        // não reembolsável: a validação de quem chama responde sem restaurar nada
+        if (archived.getStatus() != Payment.Status.APPROVED) return archived;
+        archived.setUpdatedAt(Instant.now());
+        try {
+            restoreTransaction.executeWithoutResult(status -> payments.save(archived));
+        } catch (DataIntegrityViolationException e) {
+            // outro pedido restaurou o mesmo pagamento ao mesmo tempo
+        }
+        return payments.findByIdForUpdate(paymentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    public RefundResponse getRefund(String id) {
+        return new RefundResponse(refunds.findById(id)
+                .or(() -> archive.findRefund(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @Scheduled(fixedDelayString = "${fiadopay.refunds.settlement-interval-ms}")
+    public void settlePending() {
+        var pending = refunds.findByStatusOrderByCreatedAtAsc(Refund.Status.PENDING, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) return;
+
+        Map<Long, List<Refund>> byMerchant = pending.stream().collect(Collectors.groupingBy(Refund::getMerchantId));
+        byMerchant.forEach((merchantId, batch) -> {
+            // no cluster, cada merchant é liquidado só pelo nó dono
+            if (!cluster.owns(merchantId)) return;
+            List<Transition> fullyRefunded = new ArrayList<>();
+            try {
+                transaction.executeWithoutResult(status -> batch.forEach(refund -> settle(refund, fullyRefunded)));
+            } catch (RuntimeException e) {
+                log.warn("Falha ao liquidar lote de {} reembolso(s) do merchant {}", batch.size(), merchantId, e);
+                return;
+            }
+            // ledger e evento só depois do commit: um rollback não deixa REFUNDED órfão no ledger, e o webhook de
+            // pagamento lê a entrega em outra thread
+            fullyRefunded.forEach(t -> {
+                ledger.append(t.payment(), t.previous());
+                events.publishEvent(new PaymentUpdatedEvent(t.payment()));
+            });
+        });
+    }
+
+    private record Transition(Payment payment, Payment.Status previous) { }
+
+    private void settle(Refund refund, List<Transition> fullyRefunded) {
+        var now = Instant.now();
+        var p = payments.findByIdForUpdate(refund.getPaymentId()).orElse(null);
+        var refunded = p == null || p.getRefundedAmount() == null ? BigDecimal.ZERO : p.getRefundedAmount();
+        var settled = refunded.add(refund.getAmount());
+        var outcome = p == null || settled.compareTo(p.getTotalWithInterest()) > 0 ? Refund.Status.FAILED : Refund.Status.SETTLED;
+
+        // a lista foi lida sem lock: outro nó que discorde do anel pode já ter liquidado este reembolso
+        if (refunds.settleIfPending(refund.getId(), outcome, now) == 0) return;
+        refund.setStatus(outcome);
+        refund.setUpdatedAt(now);
+        if (outcome == Refund.Status.SETTLED) {
+            p.setRefundedAmount(settled);
+            p.setUpdatedAt(now);
+            if (settled.compareTo(p.getTotalWithInterest()) == 0) {
+                var previous = p.getStatus();
+                p.setStatus(Payment.Status.REFUNDED);
+                fullyRefunded.add(new Transition(p, previous));
+            }
+            payments.save(p);
+        }
+        events.publishEvent(new RefundUpdatedEvent(refund));
+    }
+
+}
@@ -0,0 +1,130 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.domain.repository.PaymentRepository;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import edu.ucsal.fiadopay.infrastructure.cluster.DirectoryLock;
+import edu.ucsal.fiadopay.infrastructure.settlement.SettlementFileWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+public class SettlementExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementExportService.class);
+
+    private final MerchantService merchantService;
+    private final PaymentRepository payments;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ClusterMembership cluster;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${fiadopay.settlement.dir}")
+    String dir;
+
+    public SettlementExportService(MerchantService merchantService, PaymentRepository payments, PlatformTransactionManager transactionManager,
+                                   ClusterMembership cluster) {
+        this.merchantService = merchantService;
+        this.payments = payments;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cluster = cluster;
+    }
+
+    @Scheduled(cron = "${fiadopay.settlement.cron}", zone = "UTC")
+    public void exportPreviousDay() {
+        if (!cluster.isLeader()) return;
+        exportDay(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+    }
+
+    /**
+     * Percorre os pagamentos do dia com um cursor ordenado por merchant, então só um arquivo fica aberto por vez
+     * e cada entidade é desanexada do contexto assim que é escrita. Segura a {@link DirectoryLock} do diretório
+     * durante a exportação, então outro nó exportando ao mesmo tempo espera em vez de reescrever os mesmos arquivos.
+     * */
+    public synchronized Map<String, Object> exportDay(LocalDate day) {
+        try (var lock = DirectoryLock.acquire(Path.of(dir))) {
+            return export(day);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao travar o diretório de liquidação " + dir, e);
+        }
+    }
+
+    private Map<String, Object> export(LocalDate day) {
+        var from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        var to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        long[] totals = new long[2];
+        readOnlyTransaction.executeWithoutResult(status -> {
+            SettlementFileWriter writer = null;
+            long merchantId = -1;
+            try (Stream<Payment> rows = payments.streamCreatedBetween(from, to)) {
+                for (var it = rows.iterator(); it.hasNext(); ) {
+                    var p = it.next();
+                    if (writer == null || p.getMerchantId() != merchantId) {
+                        if (writer != null) finish(writer, totals);
+                        merchantId = p.getMerchantId();
+                        writer = new SettlementFileWriter(fileFor(merchantId, day), merchantId, day);
+                    }
+                    writer.append(p);
+                    entityManager.detach(p);
+                }
+                if (writer != null) finish(writer, totals);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao exportar liquidação de " + day, e);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        });
+
+        log.info("Liquidação de {} exportada: {} merchant(s), {} pagamento(s)", day, totals[0], totals[1]);
+        return Map.of("date", day.toString(), "merchants", totals[0], "payments", totals[1]);
+    }
+
+    public Resource getSettlementFile(String auth, LocalDate day) {
+        var merchant = merchantService.merchantFromAuth(auth);
+        var file = fileFor(merchant.getId(), day);
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Arquivo de liquidação não encontrado para " + day);
+        }
+        return new FileSystemResource(file);
+    }
+
+    private void finish(SettlementFileWriter writer, long[] totals) throws IOException {
+        totals[0]++;
+        totals[1] += writer.rows();
+        writer.complete();
+    }
+
+    private Path fileFor(long merchantId, LocalDate day) {
+        return Path.of(dir, day.toString(), "merchant-" + merchantId + ".fsf.gz");
+    }
+
+}
@@ -0,0 +1,67 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.application.analytics.PaymentStatsRollup;
+import edu.ucsal.fiadopay.application.dto.response.PaymentStatsResponse;
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class StatsService {
+
+    private final MerchantService merchantService;
+    private final PaymentStatsRollup rollup;
+    private final ClusterMembership cluster;
+
+    public StatsService(MerchantService merchantService, PaymentStatsRollup rollup, ClusterMembership cluster) {
+        this.merchantService = merchantService;
+        this.rollup = rollup;
+        this.cluster = cluster;
+    }
+
+    public PaymentStatsResponse getStats(String auth, String granularity) {
+        // o rollup é local a cada nó: no cluster a resposta seria só a fatia do nó que atendeu
+        if (cluster.enabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "Estatísticas indisponíveis no modo cluster");
+        }
+        var merchant = merchantService.merchantFromAuth(auth);
+        PaymentStatsRollup.Granularity g;
+        try {
+            g = PaymentStatsRollup.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Granularidade inválida: " + granularity);
+        }
+
+        List<PaymentStatsResponse.Bucket> buckets = new ArrayList<>();
+        Map<String, long[]> totals = new TreeMap<>();
+        rollup.forEach(merchant.getId(), g, (key, counter) -> {
+            long count = counter.count();
+            buckets.add(new PaymentStatsResponse.Bucket(Instant.ofEpochMilli(key.bucketStart()), key.method(), key.status(), count, counter.amount()));
+            var methodTotals = totals.computeIfAbsent(key.method(), k -> new long[3]);
+            if (Payment.Status.PENDING.name().equals(key.status())) methodTotals[0] += count;
+            else if (Payment.Status.APPROVED.name().equals(key.status())) methodTotals[1] += count;
+            else if (Payment.Status.DECLINED.name().equals(key.status())) methodTotals[2] += count;
+        });
+        buckets.sort(Comparator.comparing(PaymentStatsResponse.Bucket::bucketStart)
+                .thenComparing(PaymentStatsResponse.Bucket::method)
+                .thenComparing(PaymentStatsResponse.Bucket::status));
+
+        List<PaymentStatsResponse.MethodSummary> methods = new ArrayList<>();
+        totals.forEach((method, t) -> {
+            long decided = t[1] + t[2];
+            methods.add(new PaymentStatsResponse.MethodSummary(method, t[0], t[1], t[2], decided == 0 ? 0.0 : (double) t[1] / decided));
+        });
+
+        return new PaymentStatsResponse(g.name(), buckets, methods);
+    }
+
+}
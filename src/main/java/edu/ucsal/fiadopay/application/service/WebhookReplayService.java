@@ -0,0 +1,228 @@
+package edu.ucsal.fiadopay.application.service;
+
+import edu.ucsal.fiadopay.application.dto.request.WebhookReplayRequest;
+import edu.ucsal.fiadopay.application.dto.response.WebhookDeliveryPageResponse;
+import edu.ucsal.fiadopay.application.dto.response.WebhookDeliveryResponse;
+import edu.ucsal.fiadopay.application.dto.response.WebhookReplayResponse;
+import edu.ucsal.fiadopay.application.listener.WebhookListener;
+import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
+import edu.ucsal.fiadopay.domain.repository.WebhookDeliveryRepository;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Consulta de entregas de webhook e replay em massa das que esgotaram as tentativas.
+ * Cada replay tem seu próprio pool (não disputa com as entregas normais), limitado por {@code parallelism}
+ * entregas simultâneas e espaçado para não passar de {@code ratePerSecond} envios por segundo.
+ * Replays terminados continuam consultáveis por {@code finished-job-ttl} e depois são descartados.
+ * */
+@Service
+public class WebhookReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookReplayService.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookListener webhookListener;
+    private final ClusterMembership cluster;
+    private final Map<String, ReplayJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService coordinators = Executors.newCachedThreadPool();
+    private final Semaphore runningJobs;
+
+    @Value("${fiadopay.webhook.replay.default-rate-per-second}")
+    double defaultRatePerSecond;
+    @Value("${fiadopay.webhook.replay.default-parallelism}")
+    int defaultParallelism;
+    @Value("${fiadopay.webhook.replay.finished-job-ttl}")
+    Duration finishedJobTtl;
+
+    public WebhookReplayService(WebhookDeliveryRepository deliveries, WebhookListener webhookListener, ClusterMembership cluster,
+                                @Value("${fiadopay.webhook.replay.max-concurrent-jobs}") int maxConcurrentJobs) {
+        this.deliveries = deliveries;
+        this.webhookListener = webhookListener;
+        this.cluster = cluster;
+        this.runningJobs = new Semaphore(maxConcurrentJobs);
+    }
+
+    public WebhookDeliveryPageResponse list(Long merchantId, WebhookDelivery.State state, Instant from, Instant to, Long cursor, int limit) {
+        Boolean delivered = state == null ? null : state == WebhookDelivery.State.DELIVERED;
+        Integer minAttempts = state == WebhookDelivery.State.FAILED ? WebhookDelivery.MAX_ATTEMPTS : null;
+        Integer maxAttempts = state == WebhookDelivery.State.PENDING ? WebhookDelivery.MAX_ATTEMPTS : null;
+
+        int size = Math.max(1, Math.min(limit, PAGE_SIZE));
+        var page = deliveries.search(cursor == null ? 0L : cursor, merchantId, delivered, minAttempts, maxAttempts, from, to,
+                PageRequest.of(0, size));
+        var items = page.stream().map(WebhookDeliveryResponse::new).toList();
+        Long nextCursor = page.size() < size ? null : page.get(page.size() - 1).getId();
+        return new WebhookDeliveryPageResponse(items, nextCursor);
+    }
+
+    public WebhookReplayResponse startReplay(WebhookReplayRequest req) {
+        evictFinished();
+        // a vaga é devolvida só quando o replay termina
+        if (!runningJobs.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Limite de replays simultâneos atingido");
+        }
+        try {
+            long total = req.deliveryIds() != null && !req.deliveryIds().isEmpty()
+                    ? req.deliveryIds().size()
+                    : deliveries.countFailed(WebhookDelivery.MAX_ATTEMPTS, req.merchantId(), req.from(), req.to());
+            var job = new ReplayJob("rpl_" + UUID.randomUUID().toString().substring(0, 8), total,
+                    req.ratePerSecond() == null ? defaultRatePerSecond : req.ratePerSecond(),
+                    req.parallelism() == null ? defaultParallelism : req.parallelism());
+            jobs.put(job.id, job);
+            coordinators.submit(() -> {
+                try {
+                    run(job, req);
+                } finally {
+                    runningJobs.release();
+                }
+            });
+            return job.toResponse();
+        } catch (RuntimeException e) {
+            runningJobs.release();
+            throw e;
+        }
+    }
+
+    public WebhookReplayResponse getReplay(String id) {
+        return findJob(id).toResponse();
+    }
+
+    public WebhookReplayResponse cancelReplay(String id) {
+        var job = findJob(id);
+        job.cancelled = true;
+        return job.toResponse();
+    }
+
+    private void evictFinished() {
+        var limit = Instant.now().minus(finishedJobTtl);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(limit));
+    }
+
+    private ReplayJob findJob(String id) {
+        var job = jobs.get(id);
+        if (job == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        return job;
+    }
+
+    private void run(ReplayJob job, WebhookReplayRequest req) {
+        var workers = Executors.newFixedThreadPool(job.parallelism);
+        var permits = new Semaphore(job.parallelism);
+        long intervalNanos = (long) (1_000_000_000L / job.ratePerSecond);
+        long[] nextSend = { System.nanoTime() };
+
+        Consumer<WebhookDelivery> send = d -> {
+            // no cluster, só o dono do merchant envia: aqui a entrega ganha uma tentativa e a varredura do dono a faz
+            if (!cluster.owns(d.getMerchantId())) {
+                if (deliveries.grantRetry(d.getId(), WebhookDelivery.MAX_ATTEMPTS) > 0) job.handedOff.incrementAndGet();
+                else job.skipped.incrementAndGet();
+                return;
+            }
+            long wait = nextSend[0] - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            // atrasos não viram rajada: o próximo envio é agendado a partir de agora
+            nextSend[0] = Math.max(nextSend[0], System.nanoTime()) + intervalNanos;
+            permits.acquireUninterruptibly();
+            job.sent.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    if (webhookListener.redeliver(d)) job.succeeded.incrementAndGet();
+                    else job.failed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    job.failed.incrementAndGet();
+                } finally {
+                    permits.release();
+                }
+            });
+        };
+
+        try {
+            if (req.deliveryIds() != null && !req.deliveryIds().isEmpty()) {
+                var ids = req.deliveryIds();
+                for (int i = 0; i < ids.size() && !job.cancelled; i += PAGE_SIZE) {
+                    for (var d : deliveries.findAllById(ids.subList(i, Math.min(ids.size(), i + PAGE_SIZE)))) {
+                        if (job.cancelled) break;
+                        if (d.isDelivered()) continue;
+                        // ainda em retry normal: reenviar agora duplicaria a próxima tentativa agendada
+                        if (d.getAttempts() < WebhookDelivery.MAX_ATTEMPTS) {
+                            job.skipped.incrementAndGet();
+                            continue;
+                        }
+                        send.accept(d);
+                    }
+                }
+            } else {
+                long cursor = 0;
+                List<WebhookDelivery> page;
+                do {
+                    page = deliveries.search(cursor, req.merchantId(), false, WebhookDelivery.MAX_ATTEMPTS, null,
+                            req.from(), req.to(), PageRequest.of(0, PAGE_SIZE));
+                    for (var d : page) {
+                        if (job.cancelled) break;
+                        send.accept(d);
+                        cursor = d.getId();
+                    }
+                } while (page.size() == PAGE_SIZE && !job.cancelled);
+            }
+            permits.acquireUninterruptibly(job.parallelism);
+            job.status = job.cancelled ? ReplayStatus.CANCELLED : ReplayStatus.COMPLETED;
+        } catch (RuntimeException e) {
+            log.warn("Replay {} de webhooks interrompido", job.id, e);
+            job.status = ReplayStatus.FAILED;
+        } finally {
+            workers.shutdown();
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private enum ReplayStatus { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private static final class ReplayJob {
+        final String id;
+        final long total;
+        final double ratePerSecond;
+        final int parallelism;
+        final Instant startedAt = Instant.now();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong handedOff = new AtomicLong();
+        volatile ReplayStatus status = ReplayStatus.RUNNING;
+        volatile boolean cancelled;
+        volatile Instant finishedAt;
+
+        ReplayJob(String id, long total, double ratePerSecond, int parallelism) {
+            this.id = id;
+            this.total = total;
+            this.ratePerSecond = ratePerSecond;
+            this.parallelism = parallelism;
+        }
+
+        WebhookReplayResponse toResponse() {
+            return new WebhookReplayResponse(id, status.name(), total, sent.get(), succeeded.get(), failed.get(), skipped.get(), handedOff.get(),
+                    ratePerSecond, parallelism, startedAt, finishedAt);
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package edu.ucsal.fiadopay.application.simulation;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+
+/**
+ * Decide o status final de um pagamento PENDING no momento do settlement.
+ * */
+public interface DecisionEngine {
+
+    Payment.Status decide(Payment payment);
+
+}
@@ -0,0 +1,110 @@
+package edu.ucsal.fiadopay.application.simulation;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.infrastructure.config.DecisionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Avalia as regras de {@code fiadopay.decision.rules}, compiladas na inicialização em arrays paralelos:
+ * a avaliação só percorre arrays e compara valores, sem alocar nem tocar estado compartilhado.
+ * <p>
+ * Os sorteios usam o mesmo mix do SplitMix64 (o gerador do {@link java.util.SplittableRandom}) aplicado a
+ * {@code seed}, ao hash do id do pagamento e ao índice da regra. Não há gerador com estado a disputar entre threads,
+ * e um pagamento reavaliado com o mesmo seed tem sempre o mesmo resultado.
+ * */
+@Component
+public class RuleDecisionEngine implements DecisionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleDecisionEngine.class);
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long ANY_MERCHANT = Long.MIN_VALUE;
+
+    private final SettlementSimulator simulator;
+    private final long seed;
+
+    private final int size;
+    private final String[] methods;
+    private final long[] merchantIds;
+    private final BigDecimal[] minAmounts;
+    private final BigDecimal[] maxAmounts;
+    private final int[] minInstallments;
+    private final int[] maxInstallments;
+    private final Payment.Status[] outcomes;
+    private final double[] rates;
+
+    public RuleDecisionEngine(DecisionProperties properties, SettlementSimulator simulator) {
+        this.simulator = simulator;
+        this.seed = properties.seed();
+
+        List<DecisionProperties.Rule> rules = properties.rules() == null ? List.of() : properties.rules();
+        this.size = rules.size();
+        this.methods = new String[size];
+        this.merchantIds = new long[size];
+        this.minAmounts = new BigDecimal[size];
+        this.maxAmounts = new BigDecimal[size];
+        this.minInstallments = new int[size];
+        this.maxInstallments = new int[size];
+        this.outcomes = new Payment.Status[size];
+        this.rates = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            var rule = rules.get(i);
+            var name = rule.name() == null ? "#" + i : rule.name();
+            if (rule.outcome() == null || rule.outcome() == Payment.Status.PENDING || rule.outcome() == Payment.Status.REFUNDED) {
+                throw new IllegalArgumentException("Regra " + name + ": outcome deve ser APPROVED, DECLINED ou EXPIRED");
+            }
+            if (rule.rate() < 0 || rule.rate() > 1) {
+                throw new IllegalArgumentException("Regra " + name + ": rate deve estar entre 0 e 1");
+            }
+            methods[i] = rule.method() == null ? null : rule.method().toUpperCase();
+            merchantIds[i] = rule.merchantId() == null ? ANY_MERCHANT : rule.merchantId();
+            // amount é atalho para min = max: valores mágicos de teste
+            minAmounts[i] = rule.amount() != null ? rule.amount() : rule.minAmount();
+            maxAmounts[i] = rule.amount() != null ? rule.amount() : rule.maxAmount();
+            minInstallments[i] = rule.minInstallments() == null ? Integer.MIN_VALUE : rule.minInstallments();
+            maxInstallments[i] = rule.maxInstallments() == null ? Integer.MAX_VALUE : rule.maxInstallments();
+            outcomes[i] = rule.outcome();
+            rates[i] = rule.rate();
+        }
+        log.info("Motor de decisão com {} regra(s), seed {}", size, seed);
+    }
+
+    @Override
+    public Payment.Status decide(Payment p) {
+        long key = seed ^ hash(p.getId());
+        var amount = p.getAmount();
+        int installments = p.getInstallments() == null ? 1 : p.getInstallments();
+        long merchantId = p.getMerchantId();
+
+        for (int i = 0; i < size; i++) {
+            if (methods[i] != null && !methods[i].equals(p.getMethod())) continue;
+            if (merchantIds[i] != ANY_MERCHANT && merchantIds[i] != merchantId) continue;
+            if (installments < minInstallments[i] || installments > maxInstallments[i]) continue;
+            if (minAmounts[i] != null && amount.compareTo(minAmounts[i]) < 0) continue;
+            if (maxAmounts[i] != null && amount.compareTo(maxAmounts[i]) > 0) continue;
+            if (rates[i] >= 1 || draw(key, i + 1) < rates[i]) return outcomes[i];
+        }
+        return simulator.outcome(p.getMethod(), draw(key, 0));
+    }
+
+    // uniforme em [0, 1): o stream separa os sorteios de cada regra do sorteio do perfil
+    private static double draw(long key, int stream) {
+        long z = key + (stream + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    private static long hash(String id) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < id.length(); i++) h = 31 * h + id.charAt(i);
+        return h;
+    }
+
+}
@@ -0,0 +1,92 @@
+package edu.ucsal.fiadopay.application.simulation;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import edu.ucsal.fiadopay.infrastructure.config.SimulationProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorteia a latência do settlement e traduz o sorteio do {@link DecisionEngine} em resultado, de acordo com o perfil do método.
+ * Métodos sem perfil usam o perfil {@code DEFAULT}; sem ele, valem {@code processing-delay-ms} e {@code failure-rate}.
+ * */
+@Component
+public class SettlementSimulator {
+
+    // quantil 0.99 da normal padrão, usado para derivar sigma a partir de p50 e p99
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final Map<String, CompiledProfile> profiles = new HashMap<>();
+    private final CompiledProfile fallback;
+    private final double clockAcceleration;
+
+    public SettlementSimulator(SimulationProperties properties,
+                               @Value("${fiadopay.processing-delay-ms}") long delay,
+                               @Value("${fiadopay.failure-rate}") double failRate) {
+        if (properties.clockAcceleration() <= 0) {
+            throw new IllegalArgumentException("fiadopay.simulation.clock-acceleration deve ser positivo");
+        }
+        this.clockAcceleration = properties.clockAcceleration();
+        if (properties.profiles() != null) {
+            properties.profiles().forEach((method, profile) -> profiles.put(method.toUpperCase(), compile(method, profile)));
+        }
+        this.fallback = profiles.getOrDefault("DEFAULT",
+                new CompiledProfile(SimulationProperties.Distribution.FIXED, delay, delay, 0, 0, failRate, 0));
+    }
+
+    public long sampleDelayMs(String method) {
+        var profile = profileFor(method);
+        var random = ThreadLocalRandom.current();
+        double latency = switch (profile.distribution) {
+            case FIXED -> profile.a;
+            case UNIFORM -> profile.b > profile.a ? random.nextDouble(profile.a, profile.b) : profile.a;
+            case LOGNORMAL -> Math.exp(profile.mu + profile.sigma * random.nextGaussian());
+        };
+        return Math.round(latency / clockAcceleration);
+    }
+
+    /** Resultado do perfil para um sorteio uniforme {@code r} em [0, 1). */
+    public Payment.Status outcome(String method, double r) {
+        var profile = profileFor(method);
+        if (r < profile.timeoutRate) return Payment.Status.EXPIRED;
+        if (r < profile.timeoutRate + profile.declineRate) return Payment.Status.DECLINED;
+        return Payment.Status.APPROVED;
+    }
+
+    private CompiledProfile profileFor(String method) {
+        return profiles.getOrDefault(method, fallback);
+    }
+
+    private static CompiledProfile compile(String method, SimulationProperties.Profile profile) {
+        if (profile.declineRate() < 0 || profile.timeoutRate() < 0 || profile.declineRate() + profile.timeoutRate() > 1) {
+            throw new IllegalArgumentException("Taxas de recusa/timeout inválidas no perfil " + method);
+        }
+        var latency = profile.latency();
+        if (latency == null) {
+            return new CompiledProfile(SimulationProperties.Distribution.FIXED, 0, 0, 0, 0, profile.declineRate(), profile.timeoutRate());
+        }
+        return switch (latency.distribution()) {
+            case FIXED -> new CompiledProfile(latency.distribution(), latency.fixedMs(), latency.fixedMs(), 0, 0,
+                    profile.declineRate(), profile.timeoutRate());
+            case UNIFORM -> new CompiledProfile(latency.distribution(), latency.minMs(), latency.maxMs(), 0, 0,
+                    profile.declineRate(), profile.timeoutRate());
+            case LOGNORMAL -> {
+                if (latency.p50Ms() <= 0 || latency.p99Ms() < latency.p50Ms()) {
+                    throw new IllegalArgumentException("Perfil " + method + ": LOGNORMAL exige 0 < p50-ms <= p99-ms");
+                }
+                double mu = Math.log(latency.p50Ms());
+                double sigma = (Math.log(latency.p99Ms()) - mu) / Z_99;
+                yield new CompiledProfile(latency.distribution(), latency.p50Ms(), latency.p99Ms(), mu, sigma,
+                        profile.declineRate(), profile.timeoutRate());
+            }
+        };
+    }
+
+    private record CompiledProfile(SimulationProperties.Distribution distribution, double a, double b, double mu, double sigma,
+                                   double declineRate, double timeoutRate) {
+    }
+
+}
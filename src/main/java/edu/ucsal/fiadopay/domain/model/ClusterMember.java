@@ -0,0 +1,19 @@
+package edu.ucsal.fiadopay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+/**
+ * Heartbeat de um nó do cluster. Nós sem heartbeat recente saem do anel e perdem seus merchants.
+ * */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor @Builder
+public class ClusterMember {
+    @Id
+    @Column(length = 64)
+    private String id; // fiadopay.cluster.node-id
+
+    @Column(nullable = false)
+    private Instant lastHeartbeat;
+}
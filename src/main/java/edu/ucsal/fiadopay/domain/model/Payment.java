@@ -8,7 +8,11 @@ import java.time.Instant;
 @Entity
 @Data @NoArgsConstructor @AllArgsConstructor @Builder
 @Table(
-    indexes = { @Index(columnList="merchantId"), @Index(columnList="status") },
+    indexes = {
+        @Index(columnList="merchantId"), @Index(columnList="status"), @Index(columnList="createdAt"),
+        @Index(name = "idx_payment_merchant_order", columnList="merchantId, metadataOrderId, id"),
+        @Index(name = "idx_payment_status_owner", columnList="status, settlementOwner")
+    },
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_payment_merchant_idempotency", columnNames = {"merchantId", "idempotencyKey"})
     }
@@ -38,6 +42,18 @@ public class Payment {
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal totalWithInterest;
 
+    // total convertido para a moeda de liquidação com a taxa vigente na criação
+    @Column(length = 10)
+    private String settlementCurrency;
+    @Column(precision = 19, scale = 8)
+    private BigDecimal fxRate;
+    @Column(precision = 19, scale = 2)
+    private BigDecimal settlementAmount;
+
+    // soma dos reembolsos já liquidados; nulo enquanto não houver nenhum
+    @Column(precision = 19, scale = 2)
+    private BigDecimal refundedAmount;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private Status status; // PENDING|APPROVED|DECLINED|EXPIRED|REFUNDED
@@ -47,6 +63,13 @@ public class Payment {
     @Column(nullable = false)
     private Instant updatedAt;
 
+    // prazo sorteado na criação; o nó que assumir o settlement depois respeita o mesmo instante
+    private Instant settleAt;
+
+    // nó do cluster que agendou o settlement; nulo enquanto nenhum nó assumiu
+    @Column(length = 64)
+    private String settlementOwner;
+
     @Column(length = 64)
     private String idempotencyKey;
     @Column(length = 255)
@@ -0,0 +1,22 @@
+package edu.ucsal.fiadopay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Consumo global de uma cota de {@code @RateLimit} na janela atual, compartilhado entre os nós.
+ * Cada nó reserva lotes de tokens aqui e os gasta localmente.
+ * */
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor @Builder
+public class RateLimitWindow {
+    @Id
+    @Column(length = 160)
+    private String id; // merchantId:endpoint
+
+    @Column(nullable = false)
+    private long windowStart; // epoch millis, alinhado ao tamanho da janela
+
+    @Column(nullable = false)
+    private int consumed;
+}
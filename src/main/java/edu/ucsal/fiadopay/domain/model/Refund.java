@@ -0,0 +1,34 @@
+package edu.ucsal.fiadopay.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Entity
+@Data @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = { @Index(columnList="paymentId"), @Index(columnList="status, createdAt") })
+public class Refund {
+    @Id
+    private String id; // ref_xxx
+
+    @Column(nullable = false)
+    private String paymentId;
+
+    @Column(nullable = false)
+    private Long merchantId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status; // PENDING|SETTLED|FAILED
+
+    @Column(nullable = false)
+    private Instant createdAt;
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public enum Status { PENDING, SETTLED, FAILED }
+}
@@ -6,19 +6,33 @@ import java.time.Instant;
 
 @Entity
 @Data @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(indexes = { @Index(columnList="merchantId"), @Index(columnList="delivered, attempts") })
 public class WebhookDelivery {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final int MAX_ATTEMPTS = 5;
+
+    // sequence com alocação em bloco: IDENTITY impediria o batch de INSERTs do saveAll
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_delivery_seq")
+    @SequenceGenerator(name = "webhook_delivery_seq", sequenceName = "webhook_delivery_seq", allocationSize = 50)
     private Long id;
 
     private String eventId;     // evt_xxx
     private String eventType;   // payment.updated
     private String paymentId;
+    private Long merchantId;
     private String targetUrl;   // merchant webhook
     private String signature;   // HMAC
     private int attempts;
     private boolean delivered;
+    private Instant createdAt;
     private Instant lastAttemptAt;
 
     @Lob
     private String payload;
+
+    public State state() {
+        if (delivered) return State.DELIVERED;
+        return attempts >= MAX_ATTEMPTS ? State.FAILED : State.PENDING;
+    }
+
+    public enum State { PENDING, DELIVERED, FAILED }
 }
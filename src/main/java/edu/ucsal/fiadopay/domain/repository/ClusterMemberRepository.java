@@ -0,0 +1,8 @@
+package edu.ucsal.fiadopay.domain.repository;
+import edu.ucsal.fiadopay.domain.model.ClusterMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.Instant;
+import java.util.List;
+public interface ClusterMemberRepository extends JpaRepository<ClusterMember, String> {
+  List<ClusterMember> findByLastHeartbeatAfter(Instant since);
+}
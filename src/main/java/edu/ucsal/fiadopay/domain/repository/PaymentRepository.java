@@ -1,7 +1,105 @@
 package edu.ucsal.fiadopay.domain.repository;
 import edu.ucsal.fiadopay.domain.model.Payment;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 public interface PaymentRepository extends JpaRepository<Payment, String> {
   Optional<Payment> findByIdempotencyKeyAndMerchantId(String ik, Long mid);
+
+  // só colunas de idx_payment_merchant_order, que inclui o id: resolvido pelo índice sem tocar na tabela
+  @Query("select p.id from Payment p where p.merchantId = :merchantId and p.metadataOrderId = :orderId")
+  List<String> findIdsByMerchantIdAndMetadataOrderId(@Param("merchantId") Long merchantId, @Param("orderId") String orderId);
+
+  interface StatusView {
+    String getId();
+    Payment.Status getStatus();
+    Instant getUpdatedAt();
+  }
+
+  // projeção com três colunas num único IN: polling de status sem carregar a entidade inteira
+  @Query("select p.id as id, p.status as status, p.updatedAt as updatedAt from Payment p where p.merchantId = :merchantId and p.id in :ids")
+  List<StatusView> findStatuses(@Param("merchantId") Long merchantId, @Param("ids") Collection<String> ids);
+
+  // só um settlement vence: outro nó (ou uma readoção) que chegue depois encontra o status já alterado e recebe 0
+  @Transactional
+  @Modifying
+  @Query("""
+      update Payment p set p.status = :status, p.updatedAt = :updatedAt
+      where p.id = :id and p.status = edu.ucsal.fiadopay.domain.model.Payment.Status.PENDING""")
+  int settleIfPending(@Param("id") String id, @Param("status") Payment.Status status, @Param("updatedAt") Instant updatedAt);
+
+  // só os PENDING sem dono vivo: os já agendados por um nó do anel não entram na varredura
+  @Query("""
+      select distinct p.merchantId from Payment p
+      where p.status = edu.ucsal.fiadopay.domain.model.Payment.Status.PENDING
+        and (p.settlementOwner is null or p.settlementOwner not in :liveMembers)""")
+  List<Long> findMerchantIdsWithUnclaimed(@Param("liveMembers") Collection<String> liveMembers);
+
+  @Query("""
+      select p from Payment p
+      where p.status = edu.ucsal.fiadopay.domain.model.Payment.Status.PENDING and p.merchantId in :merchantIds
+        and (p.settlementOwner is null or p.settlementOwner not in :liveMembers)
+      order by p.createdAt""")
+  List<Payment> findUnclaimed(@Param("merchantIds") Collection<Long> merchantIds, @Param("liveMembers") Collection<String> liveMembers, Pageable pageable);
+
+  @Transactional
+  @Modifying
+  @Query("""
+      update Payment p set p.settlementOwner = :node
+      where p.id = :id and p.status = edu.ucsal.fiadopay.domain.model.Payment.Status.PENDING
+        and (p.settlementOwner is null or p.settlementOwner not in :liveMembers)""")
+  int claimSettlement(@Param("id") String id, @Param("node") String node, @Param("liveMembers") Collection<String> liveMembers);
+
+  // adoção recusada por falta de vaga: a linha volta para a varredura
+  @Transactional
+  @Modifying
+  @Query("update Payment p set p.settlementOwner = null where p.id = :id and p.settlementOwner = :node")
+  int releaseSettlement(@Param("id") String id, @Param("node") String node);
+
+  // um nó que reinicia perdeu os agendamentos em memória: devolve os seus para a varredura
+  @Transactional
+  @Modifying
+  @Query("""
+      update Payment p set p.settlementOwner = null
+      where p.settlementOwner = :node and p.status = edu.ucsal.fiadopay.domain.model.Payment.Status.PENDING""")
+  int releaseSettlements(@Param("node") String node);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select p from Payment p where p.id = :id")
+  Optional<Payment> findByIdForUpdate(@Param("id") String id);
+
+  @Query("select p.id from Payment p where p.id in :ids")
+  List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select p from Payment p where p.id in :ids")
+  List<Payment> findAllByIdForUpdate(@Param("ids") Collection<String> ids);
+
+  @QueryHints({
+      @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+      @QueryHint(name = "org.hibernate.readOnly", value = "true")
+  })
+  @Query("select p from Payment p where p.createdAt >= :from and p.createdAt < :to order by p.merchantId, p.createdAt")
+  Stream<Payment> streamCreatedBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+  // fora os que ainda têm reembolso a liquidar: o settlement do reembolso precisa do pagamento na tabela
+  @Query("""
+      select p from Payment p
+      where p.status in :statuses and p.updatedAt < :cutoff
+        and not exists (select r from Refund r where r.paymentId = p.id
+                        and r.status = edu.ucsal.fiadopay.domain.model.Refund.Status.PENDING)
+      order by p.updatedAt""")
+  List<Payment> findArchivable(@Param("statuses") Collection<Payment.Status> statuses, @Param("cutoff") Instant cutoff, Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package edu.ucsal.fiadopay.domain.repository;
+import edu.ucsal.fiadopay.domain.model.RateLimitWindow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Optional;
+public interface RateLimitWindowRepository extends JpaRepository<RateLimitWindow, String> {
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select w from RateLimitWindow w where w.id = :id")
+  Optional<RateLimitWindow> findByIdForUpdate(@Param("id") String id);
+}
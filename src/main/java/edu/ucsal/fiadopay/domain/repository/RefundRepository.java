@@ -0,0 +1,35 @@
+package edu.ucsal.fiadopay.domain.repository;
+import edu.ucsal.fiadopay.domain.model.Refund;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+public interface RefundRepository extends JpaRepository<Refund, String> {
+  List<Refund> findByStatusOrderByCreatedAtAsc(Refund.Status status, Pageable pageable);
+
+  @Query("select coalesce(sum(r.amount), 0) from Refund r where r.paymentId = :paymentId and r.status in :statuses")
+  BigDecimal sumAmountByPaymentIdAndStatusIn(@Param("paymentId") String paymentId, @Param("statuses") Collection<Refund.Status> statuses);
+
+  // como o settleIfPending do pagamento: no cluster, só um nó liquida cada reembolso
+  @Modifying
+  @Query("""
+      update Refund r set r.status = :status, r.updatedAt = :updatedAt
+      where r.id = :id and r.status = edu.ucsal.fiadopay.domain.model.Refund.Status.PENDING""")
+  int settleIfPending(@Param("id") String id, @Param("status") Refund.Status status, @Param("updatedAt") Instant updatedAt);
+
+  @Query("""
+      select distinct r.paymentId from Refund r
+      where r.paymentId in :paymentIds and r.status = edu.ucsal.fiadopay.domain.model.Refund.Status.PENDING""")
+  List<String> findPaymentIdsWithPending(@Param("paymentIds") Collection<String> paymentIds);
+
+  List<Refund> findByPaymentIdIn(Collection<String> paymentIds);
+
+  @Modifying
+  @Query("delete from Refund r where r.paymentId in :paymentIds")
+  int deleteByPaymentIdIn(@Param("paymentIds") Collection<String> paymentIds);
+}
@@ -1,4 +1,59 @@
 package edu.ucsal.fiadopay.domain.repository;
 import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> { }
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+
+  // paginação por cursor (id > cursor): custo constante por página, independente da profundidade
+  @Query("""
+      select d from WebhookDelivery d
+      where d.id > :cursor
+        and (:merchantId is null or d.merchantId = :merchantId)
+        and (:delivered is null or d.delivered = :delivered)
+        and (:minAttempts is null or d.attempts >= :minAttempts)
+        and (:maxAttempts is null or d.attempts < :maxAttempts)
+        and (:from is null or d.createdAt >= :from)
+        and (:to is null or d.createdAt < :to)
+      order by d.id""")
+  List<WebhookDelivery> search(@Param("cursor") long cursor, @Param("merchantId") Long merchantId,
+                               @Param("delivered") Boolean delivered, @Param("minAttempts") Integer minAttempts,
+                               @Param("maxAttempts") Integer maxAttempts, @Param("from") Instant from,
+                               @Param("to") Instant to, Pageable pageable);
+
+  @Query("""
+      select count(d) from WebhookDelivery d
+      where d.delivered = false and d.attempts >= :minAttempts
+        and (:merchantId is null or d.merchantId = :merchantId)
+        and (:from is null or d.createdAt >= :from)
+        and (:to is null or d.createdAt < :to)""")
+  long countFailed(@Param("minAttempts") int minAttempts, @Param("merchantId") Long merchantId,
+                   @Param("from") Instant from, @Param("to") Instant to);
+
+  @Query("select d from WebhookDelivery d where d.delivered = true and d.createdAt < :cutoff order by d.id")
+  List<WebhookDelivery> findArchivable(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+  @Query("select distinct d.merchantId from WebhookDelivery d where d.delivered = false and d.attempts < :maxAttempts")
+  List<Long> findMerchantIdsWithUndelivered(@Param("maxAttempts") int maxAttempts);
+
+  // entregas pendentes nunca tentadas, ou sem tentativa recente: o nó que cuidava delas saiu, perdeu o merchant ou reiniciou
+  @Query("""
+      select d from WebhookDelivery d
+      where d.delivered = false and d.attempts < :maxAttempts and d.merchantId in :merchantIds
+        and ((d.attempts = 0 and d.createdAt < :newBefore) or coalesce(d.lastAttemptAt, d.createdAt) < :staleBefore)
+      order by d.id""")
+  List<WebhookDelivery> findStale(@Param("merchantIds") Collection<Long> merchantIds, @Param("maxAttempts") int maxAttempts,
+                                  @Param("newBefore") Instant newBefore, @Param("staleBefore") Instant staleBefore, Pageable pageable);
+
+  // replay de entrega de merchant de outro nó: devolve uma tentativa para o dono fazer na varredura de pendentes
+  @Transactional
+  @Modifying
+  @Query("update WebhookDelivery d set d.attempts = :maxAttempts - 1 where d.id = :id and d.delivered = false and d.attempts >= :maxAttempts")
+  int grantRetry(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package edu.ucsal.fiadopay.infrastructure.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite adaptativo (AIMD) de trabalho em execução: requisições de criação, da admissão até o fim da transação, e
+ * settlements enquanto rodam no pool. A latência da requisição é medida da admissão ao commit; a do settlement, do
+ * horário em que deveria rodar até o fim, então fila no pool e lentidão do banco aparecem na amostra. Acima do alvo
+ * o limite cai multiplicativamente, abaixo sobe de 1 em 1.
+ * <p>
+ * Settlements só agendados para o futuro (BOLETO leva dias) não ocupam esse limite: eles têm um teto fixo próprio,
+ * {@code max-scheduled-settlements}, que só protege a memória da fila do agendador.
+ * */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final int maxScheduled;
+
+    private volatile int limit;
+    private volatile long lastLatencyNanos;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(@Value("${fiadopay.admission.initial-limit}") int initialLimit,
+                                      @Value("${fiadopay.admission.min-limit}") int minLimit,
+                                      @Value("${fiadopay.admission.max-limit}") int maxLimit,
+                                      @Value("${fiadopay.admission.target-latency-ms}") long targetLatencyMs,
+                                      @Value("${fiadopay.admission.backoff-ratio}") double backoffRatio,
+                                      @Value("${fiadopay.admission.max-scheduled-settlements}") int maxScheduled) {
+        if (minLimit < 1 || minLimit > maxLimit || backoffRatio <= 0 || backoffRatio >= 1 || maxScheduled < 1) {
+            throw new IllegalArgumentException("Configuração inválida de fiadopay.admission");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.targetLatencyNanos = targetLatencyMs * 1_000_000;
+        this.backoffRatio = backoffRatio;
+        this.maxScheduled = maxScheduled;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Conta um settlement que começou a rodar. Não recusa: o pagamento já foi aceito, mas enquanto roda ele ocupa o
+     * limite e novas requisições esperam por ele.
+     * */
+    public void enter() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Reserva uma vaga no teto de settlements agendados, devolvida por {@link #releaseScheduled()} quando o settlement
+     * termina ou deixa de ser deste nó.
+     * */
+    public boolean tryReserveScheduled() {
+        while (true) {
+            int current = scheduled.get();
+            if (current >= maxScheduled) {
+                rejected.increment();
+                return false;
+            }
+            if (scheduled.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    public void releaseScheduled() {
+        scheduled.decrementAndGet();
+    }
+
+    /**
+     * Devolve uma permissão sem amostra de latência (ex: a transação de criação sofreu rollback).
+     * */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long latencyNanos, boolean success) {
+        inFlight.decrementAndGet();
+        lastLatencyNanos = latencyNanos;
+        adjust(latencyNanos, success);
+    }
+
+    private synchronized void adjust(long latencyNanos, boolean success) {
+        long now = System.nanoTime();
+        if (!success || latencyNanos > targetLatencyNanos) {
+            // no máximo uma redução por janela de latência alvo, para uma rajada de amostras lentas não zerar o limite
+            if (now - lastDecreaseNanos >= targetLatencyNanos) {
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+                lastDecreaseNanos = now;
+            }
+        } else if (inFlight.get() * 2 >= limit && limit < maxLimit) {
+            // só cresce quando o limite está de fato sendo usado
+            limit++;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(limit, inFlight.get(), accepted.sum(), rejected.sum(), lastLatencyNanos / 1_000_000.0,
+                scheduled.get(), maxScheduled);
+    }
+
+    public record Snapshot(int limit, int inFlight, long accepted, long rejected, double lastLatencyMs,
+                           int scheduled, int maxScheduled) {
+    }
+
+}
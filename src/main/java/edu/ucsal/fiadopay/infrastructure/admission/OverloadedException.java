@@ -0,0 +1,26 @@
+package edu.ucsal.fiadopay.infrastructure.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 503 com {@code Retry-After}: o Spring copia {@link #getHeaders()} para a resposta.
+ * */
+public class OverloadedException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public OverloadedException(long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Sistema sobrecarregado, tente novamente em " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+
+}
@@ -0,0 +1,489 @@
+package edu.ucsal.fiadopay.infrastructure.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Arquivo morto append-only: cada {@link #write} grava um segmento novo e imutável, {@code <prefixo>-NNNNNN.dat}
+ * com os registros comprimidos um a um (deflate), e {@code .idx} com entradas de tamanho fixo
+ * {@code [chave ASCII de 32 bytes][offset][tamanho]} ordenadas pela chave.
+ * <p>
+ * A busca faz binary search no {@code .idx} de cada segmento, do mais novo ao mais antigo, lendo direto do disco;
+ * em memória fica só a lista de segmentos, então o heap não cresce com o volume arquivado. O {@code .idx} é
+ * publicado por último: segmento sem índice é resto de uma gravação interrompida e é descartado na abertura.
+ * Outros processos podem ler o mesmo diretório; novos segmentos são percebidos pela data de modificação dele.
+ * <p>
+ * {@link #compact()} funde os {@value #MERGE_FAN_IN} segmentos mais novos quando têm a mesma ordem de grandeza, como
+ * um contador em base {@value #MERGE_FAN_IN}: o número de segmentos, e de arquivos abertos numa busca sem
+ * resultado, cresce com o logaritmo do volume arquivado. Quem lia um segmento fundido e apagado relista e repete.
+ * */
+public class ArchiveSegmentStore {
+
+    static final int KEY_BYTES = 32;
+    static final int INDEX_RECORD = KEY_BYTES + Long.BYTES + Integer.BYTES;
+    static final int MERGE_FAN_IN = 4;
+    private static final int READ_ATTEMPTS = 3;
+    private static final Duration LEFTOVER_AGE = Duration.ofMinutes(10);
+
+    private final Path dir;
+    private final String prefix;
+    private volatile List<Path> segments = List.of(); // mais novo primeiro
+    private volatile FileTime scannedAt;
+
+    public ArchiveSegmentStore(Path dir, String prefix) throws IOException {
+        this.dir = dir;
+        this.prefix = prefix;
+        Files.createDirectories(dir);
+        removeLeftovers();
+        scan();
+    }
+
+    // o diretório pode ser compartilhado entre nós: só apaga restos antigos o bastante para não serem de uma gravação em curso
+    private void removeLeftovers() throws IOException {
+        var limit = Instant.now().minus(LEFTOVER_AGE);
+        try (Stream<Path> list = Files.list(dir)) {
+            for (var file : list.toList()) {
+                var name = file.getFileName().toString();
+                if (!name.startsWith(prefix + "-")) continue;
+                boolean leftover = name.endsWith(".part")
+                        || (name.endsWith(".dat") && !Files.exists(file.resolveSibling(name.replace(".dat", ".idx"))));
+                if (leftover && Files.getLastModifiedTime(file).toInstant().isBefore(limit)) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // relista os segmentos: outro nó (o líder do cluster) pode ter publicado ou fundido segmentos no mesmo diretório.
+    // Sem lock de escrita: uma leitura não espera uma fusão em andamento
+    private void scan() throws IOException {
+        var modified = Files.getLastModifiedTime(dir);
+        segments = list();
+        scannedAt = modified;
+    }
+
+    private List<Path> list() throws IOException {
+        var indexes = new ArrayList<Path>();
+        try (Stream<Path> list = Files.list(dir)) {
+            for (var file : list.toList()) {
+                if (file.getFileName().toString().matches(prefix + "-\\d{6}\\.idx")) indexes.add(file);
+            }
+        }
+        indexes.sort(Comparator.reverseOrder());
+        return indexes.stream()
+                .map(index -> index.resolveSibling(index.getFileName().toString().replace(".idx", ".dat")))
+                .toList();
+    }
+
+    private void refresh() throws IOException {
+        if (!Files.getLastModifiedTime(dir).equals(scannedAt)) scan();
+    }
+
+    // numeração vem sempre de uma listagem nova feita sob o lock de escrita, nunca da lista que as leituras atualizam
+    private Path nextSegment(List<Path> current) {
+        int next = current.isEmpty() ? 0 : number(current.get(0)) + 1;
+        return dir.resolve(String.format("%s-%06d.dat", prefix, next));
+    }
+
+    private int number(Path data) {
+        var name = data.getFileName().toString();
+        return Integer.parseInt(name.substring(prefix.length() + 1, name.length() - 4));
+    }
+
+    /**
+     * Grava os registros num segmento novo. Só retorna depois do fsync, então o chamador pode apagar a origem.
+     * */
+    public synchronized void write(SortedMap<String, byte[]> records) throws IOException {
+        if (records.isEmpty()) return;
+        var current = list();
+        var data = nextSegment(current);
+        var dataPart = part(data);
+        var indexPart = part(index(data));
+
+        var indexBuffer = ByteBuffer.allocate(records.size() * INDEX_RECORD);
+        try (var out = FileChannel.open(dataPart, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var deflater = new Deflater(Deflater.BEST_SPEED);
+            long offset = 0;
+            try {
+                for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                    var compressed = compress(deflater, record.getValue());
+                    out.write(ByteBuffer.wrap(compressed));
+                    indexBuffer.put(key(record.getKey())).putLong(offset).putInt(compressed.length);
+                    offset += compressed.length;
+                }
+            } finally {
+                deflater.end();
+            }
+            out.force(true);
+        }
+        try (var out = FileChannel.open(indexPart, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(indexBuffer.flip());
+            out.force(true);
+        }
+        publish(dataPart, indexPart, data, current, List.of());
+    }
+
+    /**
+     * Funde os segmentos mais novos enquanto os {@value #MERGE_FAN_IN} primeiros tiverem a mesma ordem de grandeza
+     * (em potências de {@value #MERGE_FAN_IN} registros). Devolve quantas fusões fez.
+     * */
+    public synchronized int compact() throws IOException {
+        int merges = 0;
+        while (true) {
+            var current = list();
+            if (current.size() < MERGE_FAN_IN) return merges;
+            var newest = current.subList(0, MERGE_FAN_IN);
+            int tier = tier(newest.get(0));
+            for (var data : newest) {
+                if (tier(data) != tier) return merges;
+            }
+            merge(current, List.copyOf(newest));
+            merges++;
+        }
+    }
+
+    private int tier(Path data) throws IOException {
+        long records = Files.size(index(data)) / INDEX_RECORD;
+        int tier = 0;
+        while (records >= MERGE_FAN_IN) {
+            records /= MERGE_FAN_IN;
+            tier++;
+        }
+        return tier;
+    }
+
+    // merge das chaves ordenadas dos segmentos; chave repetida fica com o registro do segmento mais novo.
+    // Os bytes comprimidos são copiados sem descomprimir
+    private void merge(List<Path> current, List<Path> sources) throws IOException {
+        var data = nextSegment(current);
+        var dataPart = part(data);
+        var indexPart = part(index(data));
+
+        var cursors = new ArrayList<Cursor>(sources.size());
+        try (var out = FileChannel.open(dataPart, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             var indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPart), 64 * 1024))) {
+            var queue = new PriorityQueue<Cursor>((a, b) -> {
+                int cmp = Arrays.compareUnsigned(a.key, b.key);
+                return cmp != 0 ? cmp : Integer.compare(a.rank, b.rank);
+            });
+            for (int rank = 0; rank < sources.size(); rank++) {
+                var cursor = new Cursor(sources.get(rank), rank);
+                cursors.add(cursor);
+                if (cursor.advance()) queue.add(cursor);
+            }
+            byte[] previous = null;
+            long offset = 0;
+            while (!queue.isEmpty()) {
+                var cursor = queue.poll();
+                if (previous == null || !Arrays.equals(previous, cursor.key)) {
+                    long copied = 0;
+                    while (copied < cursor.length) {
+                        copied += cursor.data.transferTo(cursor.offset + copied, cursor.length - copied, out);
+                    }
+                    indexOut.write(cursor.key);
+                    indexOut.writeLong(offset);
+                    indexOut.writeInt(cursor.length);
+                    offset += cursor.length;
+                    previous = cursor.key.clone();
+                }
+                if (cursor.advance()) queue.add(cursor);
+            }
+            out.force(true);
+            indexOut.flush();
+        } finally {
+            for (var cursor : cursors) cursor.close();
+        }
+        try (var sync = FileChannel.open(indexPart, StandardOpenOption.WRITE)) {
+            sync.force(true);
+        }
+        publish(dataPart, indexPart, data, current, sources);
+    }
+
+    private void publish(Path dataPart, Path indexPart, Path data, List<Path> current, List<Path> replaced) throws IOException {
+        if (Files.exists(data)) throw new IOException("Segmento já existe: " + data);
+        Files.move(dataPart, data, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexPart, index(data), StandardCopyOption.ATOMIC_MOVE);
+        // índice antes dos dados: quem relistar não enxerga mais o segmento antigo
+        for (var old : replaced) Files.deleteIfExists(index(old));
+        for (var old : replaced) Files.deleteIfExists(old);
+
+        var updated = new ArrayList<Path>(current.size() + 1);
+        updated.add(data);
+        for (var segment : current) {
+            if (!replaced.contains(segment)) updated.add(segment);
+        }
+        segments = List.copyOf(updated);
+    }
+
+    private static final class Cursor implements AutoCloseable {
+        final int rank;
+        final DataInputStream index;
+        final FileChannel data;
+        final byte[] key = new byte[KEY_BYTES];
+        long remaining;
+        long offset;
+        int length;
+
+        Cursor(Path dataFile, int rank) throws IOException {
+            this.rank = rank;
+            var indexFile = ArchiveSegmentStore.index(dataFile);
+            this.remaining = Files.size(indexFile) / INDEX_RECORD;
+            this.index = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 64 * 1024));
+            this.data = FileChannel.open(dataFile, StandardOpenOption.READ);
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            index.readFully(key);
+            offset = index.readLong();
+            length = index.readInt();
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                index.close();
+            } finally {
+                data.close();
+            }
+        }
+    }
+
+    /** Registro mais recente com a chave, descomprimido, ou {@code null}. */
+    public byte[] read(String key) {
+        if (!validKey(key)) return null;
+        var target = key(key);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                refresh();
+                return readOnce(target);
+            } catch (NoSuchFileException e) {
+                // segmento fundido e apagado no meio da busca: relista e repete
+                if (attempt == READ_ATTEMPTS) throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+                scannedAt = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+            }
+        }
+    }
+
+    private byte[] readOnce(byte[] target) throws IOException {
+        var candidate = new byte[KEY_BYTES];
+        var entry = ByteBuffer.allocate(INDEX_RECORD);
+        for (var data : segments) {
+            try (var idx = FileChannel.open(index(data), StandardOpenOption.READ)) {
+                long low = 0;
+                long high = idx.size() / INDEX_RECORD - 1;
+                while (low <= high) {
+                    long mid = (low + high) >>> 1;
+                    entry.clear();
+                    idx.read(entry, mid * INDEX_RECORD);
+                    entry.flip().get(candidate);
+                    int cmp = Arrays.compareUnsigned(candidate, target);
+                    if (cmp < 0) low = mid + 1;
+                    else if (cmp > 0) high = mid - 1;
+                    else return readRecord(data, entry.getLong(), entry.getInt());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registro mais recente de cada chave, para as que existirem. As chaves são buscadas em ordem, uma passada por
+     * segmento: cada arquivo é aberto uma vez por lote, não uma vez por chave.
+     * */
+    public Map<String, byte[]> readAll(Collection<String> keys) {
+        var targets = new TreeMap<String, byte[]>();
+        for (var key : keys) {
+            // id fora do formato de chave (vindo do cliente) não pode estar arquivado
+            if (validKey(key)) targets.put(key, key(key));
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                refresh();
+                return readAllOnce(targets);
+            } catch (NoSuchFileException e) {
+                if (attempt == READ_ATTEMPTS) throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+                scannedAt = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+            }
+        }
+    }
+
+    private Map<String, byte[]> readAllOnce(SortedMap<String, byte[]> targets) throws IOException {
+        var found = new HashMap<String, byte[]>();
+        var remaining = new TreeMap<>(targets);
+        var candidate = new byte[KEY_BYTES];
+        var entry = ByteBuffer.allocate(INDEX_RECORD);
+        for (var data : segments) {
+            if (remaining.isEmpty()) break;
+            FileChannel dat = null;
+            try (var idx = FileChannel.open(index(data), StandardOpenOption.READ)) {
+                long low = 0;
+                long count = idx.size() / INDEX_RECORD;
+                for (var it = remaining.entrySet().iterator(); it.hasNext() && low < count; ) {
+                    var target = it.next();
+                    // chaves em ordem: a busca da próxima começa onde a anterior parou
+                    long high = count - 1;
+                    while (low <= high) {
+                        long mid = (low + high) >>> 1;
+                        entry.clear();
+                        idx.read(entry, mid * INDEX_RECORD);
+                        entry.flip().get(candidate);
+                        int cmp = Arrays.compareUnsigned(candidate, target.getValue());
+                        if (cmp < 0) low = mid + 1;
+                        else if (cmp > 0) high = mid - 1;
+                        else {
+                            if (dat == null) dat = FileChannel.open(data, StandardOpenOption.READ);
+                            found.put(target.getKey(), readRecord(dat, data, entry.getLong(), entry.getInt()));
+                            it.remove();
+                            low = mid + 1;
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                if (dat != null) dat.close();
+            }
+        }
+        return found;
+    }
+
+    /** Chaves de todos os segmentos que começam com {@code keyPrefix}, em ordem. */
+    public SortedSet<String> keysStartingWith(String keyPrefix) {
+        var target = key(keyPrefix);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                refresh();
+                return keysOnce(target, keyPrefix.length());
+            } catch (NoSuchFileException e) {
+                if (attempt == READ_ATTEMPTS) throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+                scannedAt = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler arquivo morto " + prefix, e);
+            }
+        }
+    }
+
+    private SortedSet<String> keysOnce(byte[] target, int prefixLength) throws IOException {
+        var candidate = new byte[KEY_BYTES];
+        var entry = ByteBuffer.allocate(INDEX_RECORD);
+        var keys = new TreeSet<String>();
+        for (var data : segments) {
+            try (var idx = FileChannel.open(index(data), StandardOpenOption.READ)) {
+                long count = idx.size() / INDEX_RECORD;
+                // primeira entrada >= prefixo completado com zeros; as que casam vêm em seguida
+                long low = 0;
+                long high = count;
+                while (low < high) {
+                    long mid = (low + high) >>> 1;
+                    entry.clear();
+                    idx.read(entry, mid * INDEX_RECORD);
+                    entry.flip().get(candidate);
+                    if (Arrays.compareUnsigned(candidate, target) < 0) low = mid + 1;
+                    else high = mid;
+                }
+                for (long i = low; i < count; i++) {
+                    entry.clear();
+                    idx.read(entry, i * INDEX_RECORD);
+                    entry.flip().get(candidate);
+                    if (!Arrays.equals(candidate, 0, prefixLength, target, 0, prefixLength)) break;
+                    keys.add(decodeKey(candidate));
+                }
+            }
+        }
+        return keys;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    private static Path part(Path file) {
+        return file.resolveSibling(file.getFileName() + ".part");
+    }
+
+    private static Path index(Path data) {
+        return data.resolveSibling(data.getFileName().toString().replace(".dat", ".idx"));
+    }
+
+    private static String decodeKey(byte[] key) {
+        int length = 0;
+        while (length < key.length && key[length] != 0) length++;
+        return new String(key, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readRecord(Path data, long offset, int length) throws IOException {
+        try (var in = FileChannel.open(data, StandardOpenOption.READ)) {
+            return readRecord(in, data, offset, length);
+        }
+    }
+
+    private static byte[] readRecord(FileChannel in, Path data, long offset, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, offset + buffer.position()) < 0) throw new IOException("Segmento truncado: " + data);
+        }
+        try (var inflater = new InflaterInputStream(new ByteArrayInputStream(buffer.array()))) {
+            return inflater.readAllBytes();
+        }
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] value) throws IOException {
+        deflater.reset();
+        var bytes = new ByteArrayOutputStream(Math.max(64, value.length / 2));
+        try (var out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean validKey(String key) {
+        return key.length() <= KEY_BYTES && StandardCharsets.US_ASCII.newEncoder().canEncode(key);
+    }
+
+    // chaves ASCII completadas com zeros: a ordem dos bytes é a mesma de String.compareTo
+    private static byte[] key(String key) {
+        var bytes = key.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > KEY_BYTES || bytes.length != key.length()) {
+            throw new IllegalArgumentException("Chave de arquivo morto inválida: " + key);
+        }
+        return Arrays.copyOf(bytes, KEY_BYTES);
+    }
+
+}
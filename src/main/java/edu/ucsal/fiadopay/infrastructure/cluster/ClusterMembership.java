@@ -0,0 +1,116 @@
+package edu.ucsal.fiadopay.infrastructure.cluster;
+
+import edu.ucsal.fiadopay.domain.model.ClusterMember;
+import edu.ucsal.fiadopay.domain.repository.ClusterMemberRepository;
+import edu.ucsal.fiadopay.infrastructure.config.ClusterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decide qual nó é dono de cada merchant. A cada heartbeat o nó grava sua linha em {@link ClusterMember}, lê quem
+ * está vivo e, se o conjunto mudou, troca o anel de uma vez. Fora do modo cluster este nó é dono de tudo.
+ * <p>
+ * Dois nós podem discordar do anel por um intervalo de heartbeat; o settlement de pagamentos e de reembolsos é
+ * protegido por um UPDATE condicional
+ * e os webhooks são at-least-once, então a janela gera no máximo trabalho repetido, nunca settlement duplicado.
+ * */
+@Component
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    private final ClusterProperties properties;
+    private final ClusterMemberRepository members;
+    private final TransactionTemplate transaction;
+    private final AtomicReference<ConsistentHashRing> ring;
+    // até o primeiro heartbeat o anel só tem este nó, que se acharia dono de tudo
+    private volatile boolean ready;
+
+    public ClusterMembership(ClusterProperties properties, ClusterMemberRepository members, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.members = members;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.ring = new AtomicReference<>(new ConsistentHashRing(List.of(properties.nodeId()), properties.virtualNodes()));
+    }
+
+    public boolean enabled() {
+        return properties.enabled();
+    }
+
+    public String nodeId() {
+        return properties.nodeId();
+    }
+
+    public boolean owns(long merchantId) {
+        return !properties.enabled() || properties.nodeId().equals(ring.get().ownerOf(merchantId));
+    }
+
+    /** Se o anel já foi montado a partir dos heartbeats; fora do modo cluster, sempre. */
+    public boolean ready() {
+        return !properties.enabled() || ready;
+    }
+
+    /** Menor id vivo: roda os jobs que não se dividem por merchant (arquivo morto, liquidação diária). */
+    public boolean isLeader() {
+        return !properties.enabled() || (ready && properties.nodeId().equals(ring.get().members().get(0)));
+    }
+
+    public List<String> liveMembers() {
+        return ring.get().members();
+    }
+
+    @Scheduled(fixedDelayString = "${fiadopay.cluster.heartbeat-interval-ms}")
+    public void heartbeat() {
+        if (!properties.enabled()) return;
+        try {
+            var now = Instant.now();
+            transaction.executeWithoutResult(status -> members.save(new ClusterMember(properties.nodeId(), now)));
+
+            var configured = configuredMembers();
+            var alive = new TreeSet<String>();
+            alive.add(properties.nodeId());
+            for (var member : members.findByLastHeartbeatAfter(now.minusMillis(properties.memberTimeoutMs()))) {
+                if (configured.isEmpty() || configured.contains(member.getId())) alive.add(member.getId());
+            }
+
+            if (!alive.equals(new TreeSet<>(ring.get().members()))) {
+                ring.set(new ConsistentHashRing(alive, properties.virtualNodes()));
+                log.info("Anel do cluster atualizado no nó {}: {}", properties.nodeId(), alive);
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            log.warn("Falha no heartbeat do nó {}; mantendo o anel atual", properties.nodeId(), e);
+        }
+    }
+
+    private Set<String> configuredMembers() {
+        var configured = new HashSet<String>();
+        if (properties.members() != null) configured.addAll(properties.members());
+        if (properties.membersFile() != null && !properties.membersFile().isBlank()) {
+            try {
+                for (var line : Files.readAllLines(Path.of(properties.membersFile()))) {
+                    var member = line.trim();
+                    if (!member.isEmpty() && !member.startsWith("#")) configured.add(member);
+                }
+            } catch (IOException e) {
+                log.warn("Não foi possível ler {}; usando só os membros estáticos", properties.membersFile(), e);
+            }
+        }
+        return configured;
+    }
+
+}
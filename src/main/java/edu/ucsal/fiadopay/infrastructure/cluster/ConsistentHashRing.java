@@ -0,0 +1,71 @@
+package edu.ucsal.fiadopay.infrastructure.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Anel de hash consistente imutável: cada membro ocupa {@code virtualNodes} pontos, e uma chave pertence ao primeiro
+ * ponto no sentido horário. Quando um membro sai, só as chaves dele mudam de dono, espalhadas entre os restantes.
+ * Os pontos ficam em arrays ordenados; a consulta é um binary search, sem alocar.
+ * */
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> members;
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        var ring = new TreeMap<Long, String>();
+        var sorted = members.stream().distinct().sorted().toList();
+        for (var member : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // colisão de ponto (improvável): o menor id fica com ele, igual em todos os nós
+                ring.putIfAbsent(hash(member + "#" + i), member);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (var entry : ring.entrySet()) {
+            points[i] = entry.getKey();
+            owners[i++] = entry.getValue();
+        }
+        this.members = sorted;
+    }
+
+    public String ownerOf(long key) {
+        if (points.length == 0) return null;
+        int i = Arrays.binarySearch(points, mix(key));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    // SplitMix64: ids sequenciais de merchant caem espalhados pelo anel
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long hash(String point) {
+        try {
+            var digest = MessageDigest.getInstance("MD5").digest(point.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) h = (h << 8) | (digest[i] & 0xFF);
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package edu.ucsal.fiadopay.infrastructure.cluster;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trava exclusiva entre processos sobre um diretório compartilhado, via {@link FileChannel#lock} no arquivo
+ * {@code .lock} dentro dele. A liderança vem do anel e dois nós podem se achar líder até o próximo heartbeat;
+ * é esta trava que impede dois escritores no mesmo diretório. O sistema operacional a solta se o processo morrer.
+ * */
+public final class DirectoryLock implements AutoCloseable {
+
+    private static final String LOCK_FILE = ".lock";
+
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private DirectoryLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /** Devolve {@code null} se outro processo já detém a trava. */
+    public static DirectoryLock tryAcquire(Path dir) throws IOException {
+        return open(dir, false);
+    }
+
+    /** Espera até o outro processo soltar a trava. */
+    public static DirectoryLock acquire(Path dir) throws IOException {
+        return open(dir, true);
+    }
+
+    private static DirectoryLock open(Path dir, boolean wait) throws IOException {
+        Files.createDirectories(dir);
+        var channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            var lock = wait ? channel.lock() : channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                return null;
+            }
+            return new DirectoryLock(channel, lock);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
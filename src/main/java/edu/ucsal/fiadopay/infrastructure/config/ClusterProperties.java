@@ -0,0 +1,22 @@
+package edu.ucsal.fiadopay.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Modo cluster: vários nós sobre o mesmo banco, cada merchant com um dono no anel de hash consistente.
+ * Membros vêm de {@code members} e/ou de {@code membersFile} (um id por linha, relido a cada heartbeat);
+ * só entram no anel os que mandaram heartbeat dentro de {@code memberTimeoutMs}.
+ * */
+@ConfigurationProperties(prefix = "fiadopay.cluster")
+public record ClusterProperties(boolean enabled,
+                                @DefaultValue("node-1") String nodeId,
+                                List<String> members,
+                                String membersFile,
+                                @DefaultValue("128") int virtualNodes,
+                                @DefaultValue("2000") long heartbeatIntervalMs,
+                                @DefaultValue("6000") long memberTimeoutMs,
+                                @DefaultValue("1000") long sweepIntervalMs) {
+}
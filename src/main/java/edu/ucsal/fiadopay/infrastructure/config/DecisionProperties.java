@@ -0,0 +1,22 @@
+package edu.ucsal.fiadopay.infrastructure.config;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Regras avaliadas no settlement, em ordem; a primeira que casa e passa no sorteio de {@code rate} decide.
+ * Condições ausentes casam com qualquer valor. Sem regra aplicável, vale o perfil de simulação do método.
+ * {@code seed} é combinado com o id do pagamento, então o mesmo pagamento sempre tem o mesmo resultado.
+ * */
+@ConfigurationProperties(prefix = "fiadopay.decision")
+public record DecisionProperties(@DefaultValue("0") long seed, List<Rule> rules) {
+
+    public record Rule(String name, String method, Long merchantId, BigDecimal amount, BigDecimal minAmount, BigDecimal maxAmount,
+                       Integer minInstallments, Integer maxInstallments, Payment.Status outcome, @DefaultValue("1") double rate) {
+    }
+
+}
@@ -0,0 +1,23 @@
+package edu.ucsal.fiadopay.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Perfis de simulação por método de pagamento ({@code CARD}, {@code PIX}, {@code BOLETO}...), com fallback para {@code DEFAULT}.
+ * {@code clockAcceleration} divide todas as latências sorteadas, permitindo rodar fluxos de dias em poucos segundos.
+ * */
+@ConfigurationProperties(prefix = "fiadopay.simulation")
+public record SimulationProperties(@DefaultValue("1") double clockAcceleration, Map<String, Profile> profiles) {
+
+    public record Profile(Latency latency, double declineRate, double timeoutRate) {
+    }
+
+    public record Latency(@DefaultValue("FIXED") Distribution distribution, long fixedMs, long minMs, long maxMs, long p50Ms, long p99Ms) {
+    }
+
+    public enum Distribution { FIXED, UNIFORM, LOGNORMAL }
+
+}
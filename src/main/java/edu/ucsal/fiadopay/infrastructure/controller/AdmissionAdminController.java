@@ -0,0 +1,27 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.dto.response.AdmissionStatusResponse;
+import edu.ucsal.fiadopay.application.listener.WebhookListener;
+import edu.ucsal.fiadopay.infrastructure.admission.AdaptiveConcurrencyLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/fiadopay/admin/admission")
+@RequiredArgsConstructor
+public class AdmissionAdminController {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final WebhookListener webhookListener;
+
+    @GetMapping
+    public AdmissionStatusResponse status() {
+        var s = limiter.snapshot();
+        return new AdmissionStatusResponse(s.limit(), s.inFlight(), s.accepted(), s.rejected(), s.lastLatencyMs(),
+                s.scheduled(), s.maxScheduled(),
+                webhookListener.pendingEvents(), webhookListener.pendingDeliveries(), webhookListener.activeDeliveries());
+    }
+
+}
@@ -0,0 +1,22 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.dto.response.ClusterStatusResponse;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/fiadopay/admin/cluster")
+@RequiredArgsConstructor
+public class ClusterAdminController {
+
+    private final ClusterMembership cluster;
+
+    @GetMapping
+    public ClusterStatusResponse status() {
+        return new ClusterStatusResponse(cluster.enabled(), cluster.nodeId(), cluster.isLeader(), cluster.liveMembers());
+    }
+
+}
@@ -0,0 +1,37 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.dto.request.FxRatesRequest;
+import edu.ucsal.fiadopay.application.dto.response.FxRatesResponse;
+import edu.ucsal.fiadopay.application.service.FxRateService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/fiadopay/admin/fx/rates")
+@RequiredArgsConstructor
+public class FxAdminController {
+
+    private final FxRateService fxRateService;
+
+    @GetMapping
+    public FxRatesResponse rates() {
+        return fxRateService.getRates();
+    }
+
+    @PutMapping
+    public FxRatesResponse replace(@Valid @RequestBody FxRatesRequest req) {
+        return fxRateService.replaceRates(req.rates());
+    }
+
+    @PostMapping("/reload")
+    public FxRatesResponse reload() {
+        return fxRateService.reload();
+    }
+
+}
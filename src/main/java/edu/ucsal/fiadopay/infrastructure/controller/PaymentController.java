@@ -2,9 +2,14 @@ package edu.ucsal.fiadopay.infrastructure.controller;
 
 import edu.ucsal.fiadopay.infrastructure.annotation.RateLimit;
 import edu.ucsal.fiadopay.application.dto.request.PaymentRequest;
+import edu.ucsal.fiadopay.application.dto.request.PaymentStatusBatchRequest;
+import edu.ucsal.fiadopay.application.dto.response.PaymentEventResponse;
 import edu.ucsal.fiadopay.application.dto.response.PaymentResponse;
+import edu.ucsal.fiadopay.application.dto.response.PaymentStatusResponse;
 import edu.ucsal.fiadopay.application.dto.request.RefundRequest;
+import edu.ucsal.fiadopay.application.dto.response.RefundResponse;
 import edu.ucsal.fiadopay.application.service.PaymentService;
+import edu.ucsal.fiadopay.application.service.RefundService;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +17,7 @@ import jakarta.validation.Valid;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
-import java.util.Map;
+import java.util.List;
 
 @RestController
 @RequestMapping("/fiadopay/gateway")
@@ -20,6 +25,7 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService service;
+    private final RefundService refundService;
 
     @PostMapping("/payments")
     @SecurityRequirement(name = "bearerAuth")
@@ -29,16 +35,40 @@ public class PaymentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
 
+    @GetMapping(value = "/payments", params = "orderId")
+    @SecurityRequirement(name = "bearerAuth")
+    public List<PaymentResponse> findByOrderId(@Parameter(hidden = true) @RequestHeader("Authorization") String auth, @RequestParam String orderId) {
+        return service.findByOrderId(auth, orderId);
+    }
+
+    @PostMapping("/payments/status:batchGet")
+    @SecurityRequirement(name = "bearerAuth")
+    @RateLimit
+    public List<PaymentStatusResponse> batchGetStatus(@Parameter(hidden = true) @RequestHeader("Authorization") String auth, @RequestBody @Valid PaymentStatusBatchRequest req) {
+        return service.getStatuses(auth, req.ids());
+    }
+
     @GetMapping("/payments/{id}")
     public PaymentResponse get(@PathVariable String id) {
         return service.getPayment(id);
     }
 
+    @GetMapping("/payments/{id}/events")
+    public List<PaymentEventResponse> events(@PathVariable String id) {
+        return service.getPaymentEvents(id);
+    }
+
     @PostMapping("/refunds")
     @RateLimit(maxRequest = 5)
     @SecurityRequirement(name = "bearerAuth")
-    public Map<String, Object> refund(@Parameter(hidden = true) @RequestHeader("Authorization") String auth, @RequestBody @Valid RefundRequest body) {
-        return service.refund(auth, body.paymentId());
+    public ResponseEntity<RefundResponse> refund(@Parameter(hidden = true) @RequestHeader("Authorization") String auth, @RequestBody @Valid RefundRequest body) {
+        var resp = refundService.requestRefund(auth, body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(resp);
+    }
+
+    @GetMapping("/refunds/{id}")
+    public RefundResponse getRefund(@PathVariable String id) {
+        return refundService.getRefund(id);
     }
 
 }
@@ -0,0 +1,26 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.service.SettlementExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/fiadopay/admin/settlements")
+@RequiredArgsConstructor
+public class SettlementAdminController {
+
+    private final SettlementExportService settlementExportService;
+
+    @PostMapping("/{date}")
+    public Map<String, Object> export(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return settlementExportService.exportDay(date);
+    }
+
+}
@@ -0,0 +1,36 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.service.SettlementExportService;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/fiadopay/gateway/settlements")
+@RequiredArgsConstructor
+public class SettlementController {
+
+    private final SettlementExportService settlementExportService;
+
+    // Corpo do tipo Resource: o Spring MVC responde requisições com "Range" com 206 e ResourceRegion
+    @GetMapping("/{date}")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Resource> download(@Parameter(hidden = true) @RequestHeader("Authorization") String auth,
+                                             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        var file = settlementExportService.getSettlementFile(auth, date);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file.getFilename()).build().toString())
+                .body(file);
+    }
+
+}
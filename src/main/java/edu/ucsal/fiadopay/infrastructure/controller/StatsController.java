@@ -0,0 +1,23 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.dto.response.PaymentStatsResponse;
+import edu.ucsal.fiadopay.application.service.StatsService;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/fiadopay/gateway")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final StatsService statsService;
+
+    @GetMapping("/stats")
+    @SecurityRequirement(name = "bearerAuth")
+    public PaymentStatsResponse stats(@Parameter(hidden = true) @RequestHeader("Authorization") String auth, @RequestParam(defaultValue = "HOUR") String granularity) {
+        return statsService.getStats(auth, granularity);
+    }
+
+}
@@ -0,0 +1,49 @@
+package edu.ucsal.fiadopay.infrastructure.controller;
+
+import edu.ucsal.fiadopay.application.dto.request.WebhookReplayRequest;
+import edu.ucsal.fiadopay.application.dto.response.WebhookDeliveryPageResponse;
+import edu.ucsal.fiadopay.application.dto.response.WebhookReplayResponse;
+import edu.ucsal.fiadopay.application.service.WebhookReplayService;
+import edu.ucsal.fiadopay.domain.model.WebhookDelivery;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/fiadopay/admin/webhooks")
+@RequiredArgsConstructor
+public class WebhookAdminController {
+
+    private final WebhookReplayService webhookReplayService;
+
+    @GetMapping("/deliveries")
+    public WebhookDeliveryPageResponse list(@RequestParam(required = false) Long merchantId,
+                                           @RequestParam(required = false) WebhookDelivery.State state,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                           @RequestParam(required = false) Long cursor,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        return webhookReplayService.list(merchantId, state, from, to, cursor, limit);
+    }
+
+    @PostMapping("/replays")
+    public ResponseEntity<WebhookReplayResponse> replay(@RequestBody @Valid WebhookReplayRequest req) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(webhookReplayService.startReplay(req));
+    }
+
+    @GetMapping("/replays/{id}")
+    public WebhookReplayResponse replayStatus(@PathVariable String id) {
+        return webhookReplayService.getReplay(id);
+    }
+
+    @DeleteMapping("/replays/{id}")
+    public WebhookReplayResponse cancelReplay(@PathVariable String id) {
+        return webhookReplayService.cancelReplay(id);
+    }
+
+}
@@ -0,0 +1,84 @@
+package edu.ucsal.fiadopay.infrastructure.eventbus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Buffer circular pré-alocado, vários produtores e um consumidor, sem locks.
+ * <p>
+ * O produtor reserva uma sequência com {@link #next()}, preenche o slot devolvido por {@link #get(long)} e o libera
+ * com {@link #publish(long)}. O consumidor lê em lote, com {@link #drain(int, BatchHandler)}, as sequências publicadas
+ * em ordem; um slot só volta a ser reservado depois que o lote que o contém termina. Com o buffer cheio o produtor
+ * espera, então a pressão chega a quem publica em vez de crescer o heap.
+ * */
+public final class RingBuffer<T> {
+
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        /** Recebe os slots {@code [first, first + count)}; eles são reutilizados assim que o método retorna normalmente. */
+        void onBatch(RingBuffer<T> ring, long first, int count);
+    }
+
+    private final Object[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+
+    public RingBuffer(int capacity, Supplier<T> factory) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacidade deve ser potência de 2: " + capacity);
+        this.slots = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+            published.set(i, -1);
+        }
+    }
+
+    public long next() {
+        long sequence = claimed.incrementAndGet();
+        // o slot ainda guarda a volta anterior até o consumidor passar por ele
+        while (sequence - slots.length > consumed) {
+            LockSupport.parkNanos(1_000);
+        }
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Entrega ao handler até {@code maxBatch} eventos publicados em sequência e devolve quantos foram consumidos.
+     * Para no primeiro slot reservado e ainda não publicado, preservando a ordem de reserva. Se o handler lança
+     * exceção, o lote não é consumido e volta inteiro no próximo drain.
+     * */
+    public int drain(int maxBatch, BatchHandler<T> handler) {
+        long first = consumed + 1;
+        int count = 0;
+        while (count < maxBatch && published.get((int) (first + count) & mask) == first + count) {
+            count++;
+        }
+        if (count == 0) return 0;
+        handler.onBatch(this, first, count);
+        consumed = first + count - 1;
+        return count;
+    }
+
+    public long backlog() {
+        return Math.max(0, claimed.get() - consumed);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+}
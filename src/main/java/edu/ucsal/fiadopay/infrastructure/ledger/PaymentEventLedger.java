@@ -0,0 +1,221 @@
+package edu.ucsal.fiadopay.infrastructure.ledger;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Log append-only de transições de pagamento, gravado em segmentos mapeados em memória.
+ * Cada registro tem tamanho fixo ({@value #RECORD_SIZE} bytes), então o offset de um evento é só
+ * {@code segmento * registrosPorSegmento + slot}. O índice {@code paymentId -> offsets} fica em memória e é
+ * reconstruído varrendo os segmentos na inicialização. Pagamentos que foram para o arquivo morto saem do índice por
+ * {@link #forget}, que grava um registro ARCHIVED para a saída valer também depois de reiniciar.
+ * */
+@Component
+public class PaymentEventLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentEventLedger.class);
+
+    static final int RECORD_SIZE = 64;
+    private static final int COMMITTED = 0x4C474552;
+    private static final int PAYMENT_ID_LENGTH = 24;
+
+    // layout: [commit:int][sequence:long][timestamp:long][type:byte][from:byte][to:byte][pad:byte][amountCents:long][paymentId:24 bytes][reserved]
+    private static final int OFF_SEQUENCE = 4;
+    private static final int OFF_TIMESTAMP = 12;
+    private static final int OFF_TYPE = 20;
+    private static final int OFF_FROM = 21;
+    private static final int OFF_TO = 22;
+    private static final int OFF_AMOUNT = 24;
+    private static final int OFF_PAYMENT_ID = 32;
+
+    public enum Type { CREATED, STATUS_CHANGED, ARCHIVED }
+
+    public record Entry(long sequence, Type type, Payment.Status from, Payment.Status to, BigDecimal amount, Instant occurredAt) {
+    }
+
+    private final Map<String, long[]> index = new ConcurrentHashMap<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    @Value("${fiadopay.ledger.dir}")
+    String dir;
+    @Value("${fiadopay.ledger.segment-size-bytes}")
+    long segmentSizeBytes;
+
+    private int recordsPerSegment;
+    private volatile MappedByteBuffer[] readable = new MappedByteBuffer[0];
+    private MappedByteBuffer current;
+    private int currentSlot;
+    private long sequence;
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        recordsPerSegment = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE, segmentSizeBytes / RECORD_SIZE);
+        var path = Path.of(dir);
+        Files.createDirectories(path);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(path)) {
+            files = list.filter(f -> f.getFileName().toString().matches("ledger-\\d{6}\\.seg")).sorted().toList();
+        }
+        for (var file : files) {
+            var buffer = map(file);
+            int slot = 0;
+            while (slot < recordsPerSegment && buffer.getInt(slot * RECORD_SIZE) == COMMITTED) {
+                long position = (long) segments.size() * recordsPerSegment + slot;
+                var paymentId = readPaymentId(buffer, slot * RECORD_SIZE);
+                if (buffer.get(slot * RECORD_SIZE + OFF_TYPE) == Type.ARCHIVED.ordinal()) index.remove(paymentId);
+                else indexPosition(paymentId, position);
+                sequence = Math.max(sequence, buffer.getLong(slot * RECORD_SIZE + OFF_SEQUENCE));
+                slot++;
+            }
+            segments.add(buffer);
+            current = buffer;
+            currentSlot = slot;
+        }
+        if (current == null) roll();
+        readable = segments.toArray(MappedByteBuffer[]::new);
+        log.info("Ledger de pagamentos aberto em {} com {} segmento(s) e {} pagamento(s) indexado(s)", path, segments.size(), index.size());
+    }
+
+    public void append(Payment payment, Payment.Status from) {
+        var type = from == null ? Type.CREATED : Type.STATUS_CHANGED;
+        long cents = payment.getTotalWithInterest() == null ? 0L
+                : payment.getTotalWithInterest().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        long timestamp = payment.getUpdatedAt() == null ? System.currentTimeMillis() : payment.getUpdatedAt().toEpochMilli();
+        long position = write(payment.getId(), type, from == null ? -1 : from.ordinal(), payment.getStatus().ordinal(), cents, timestamp);
+        indexPosition(payment.getId(), position);
+    }
+
+    /**
+     * Tira os pagamentos do índice; os registros continuam nos segmentos, só deixam de ser lidos.
+     * */
+    public void forget(Collection<String> paymentIds) {
+        long now = System.currentTimeMillis();
+        for (var paymentId : paymentIds) {
+            if (!index.containsKey(paymentId)) continue;
+            write(paymentId, Type.ARCHIVED, -1, -1, 0L, now);
+            index.remove(paymentId);
+        }
+    }
+
+    /** Pagamentos indexados cujo último evento é anterior a {@code cutoff}: candidatos a já estar no arquivo morto. */
+    public List<String> idsIdleSince(Instant cutoff) {
+        long limit = cutoff.toEpochMilli();
+        var buffers = readable;
+        var ids = new ArrayList<String>();
+        index.forEach((paymentId, positions) -> {
+            long last = positions[positions.length - 1];
+            var buffer = buffers[(int) (last / recordsPerSegment)];
+            if (buffer.getLong((int) (last % recordsPerSegment) * RECORD_SIZE + OFF_TIMESTAMP) < limit) ids.add(paymentId);
+        });
+        return ids;
+    }
+
+    private synchronized long write(String paymentId, Type type, int from, int to, long cents, long timestamp) {
+        var id = paymentId.getBytes(StandardCharsets.US_ASCII);
+        if (id.length > PAYMENT_ID_LENGTH) {
+            throw new IllegalArgumentException("paymentId excede " + PAYMENT_ID_LENGTH + " bytes: " + paymentId);
+        }
+        if (currentSlot == recordsPerSegment) roll();
+        int base = currentSlot * RECORD_SIZE;
+        current.putLong(base + OFF_SEQUENCE, ++sequence);
+        current.putLong(base + OFF_TIMESTAMP, timestamp);
+        current.put(base + OFF_TYPE, (byte) type.ordinal());
+        current.put(base + OFF_FROM, (byte) from);
+        current.put(base + OFF_TO, (byte) to);
+        current.putLong(base + OFF_AMOUNT, cents);
+        current.put(base + OFF_PAYMENT_ID, id);
+        // o marcador é gravado por último: um registro só é visível na recuperação depois de completo
+        current.putInt(base, COMMITTED);
+        long position = (long) (segments.size() - 1) * recordsPerSegment + currentSlot;
+        currentSlot++;
+        return position;
+    }
+
+    public List<Entry> read(String paymentId) {
+        var positions = index.get(paymentId);
+        if (positions == null) return List.of();
+        var buffers = readable;
+        var statuses = Payment.Status.values();
+        List<Entry> entries = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            var buffer = buffers[(int) (position / recordsPerSegment)];
+            int base = (int) (position % recordsPerSegment) * RECORD_SIZE;
+            byte from = buffer.get(base + OFF_FROM);
+            entries.add(new Entry(
+                    buffer.getLong(base + OFF_SEQUENCE),
+                    Type.values()[buffer.get(base + OFF_TYPE)],
+                    from < 0 ? null : statuses[from],
+                    statuses[buffer.get(base + OFF_TO)],
+                    BigDecimal.valueOf(buffer.getLong(base + OFF_AMOUNT), 2),
+                    Instant.ofEpochMilli(buffer.getLong(base + OFF_TIMESTAMP))
+            ));
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    private void roll() {
+        if (current != null) current.force();
+        var file = Path.of(dir, String.format("ledger-%06d.seg", segments.size()));
+        try {
+            current = map(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar segmento do ledger " + file, e);
+        }
+        segments.add(current);
+        currentSlot = 0;
+        readable = segments.toArray(MappedByteBuffer[]::new);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+    }
+
+    private void indexPosition(String paymentId, long position) {
+        index.merge(paymentId, new long[]{position}, (existing, added) -> {
+            var merged = Arrays.copyOf(existing, existing.length + 1);
+            merged[existing.length] = added[0];
+            return merged;
+        });
+    }
+
+    private static String readPaymentId(MappedByteBuffer buffer, int base) {
+        var bytes = new byte[PAYMENT_ID_LENGTH];
+        buffer.get(base + OFF_PAYMENT_ID, bytes);
+        int length = 0;
+        while (length < bytes.length && bytes[length] != 0) length++;
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+}
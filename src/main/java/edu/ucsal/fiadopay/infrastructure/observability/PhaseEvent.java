@@ -0,0 +1,27 @@
+package edu.ucsal.fiadopay.infrastructure.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de uma fase (auth, save, commit, http...). Sem gravação ativa o custo é praticamente nulo.
+ * Leitura offline: {@code jfr print --events edu.ucsal.fiadopay.Phase gravacao.jfr}.
+ * */
+@Name("edu.ucsal.fiadopay.Phase")
+@Label("FiadoPay Phase")
+@Category("FiadoPay")
+@Description("Duração de uma fase de requisição, settlement ou entrega de webhook")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    @Label("Scope")
+    String scope;
+
+    @Label("Phase")
+    String phase;
+
+}
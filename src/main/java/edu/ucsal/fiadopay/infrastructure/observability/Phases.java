@@ -0,0 +1,71 @@
+package edu.ucsal.fiadopay.infrastructure.observability;
+
+import java.util.function.Supplier;
+
+/**
+ * Instrumentação de fases. Cada fase vira um {@link PhaseEvent} no JFR e, se a thread estiver atendendo uma
+ * requisição HTTP, também entra no header {@code Server-Timing} montado pelo {@link ServerTimingFilter}.
+ * <pre>
+ * try (var phase = Phases.start("request", "idempotency")) { ... }
+ * var merchant = Phases.time("request", "auth", () -&gt; merchantFromAuth(auth));
+ * </pre>
+ * Uma fase que começa e termina em callbacks diferentes (ex: commit de transação) guarda o {@link Phase} de
+ * {@link #start} e o fecha no callback final, na mesma thread.
+ * */
+public final class Phases {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private Phases() {
+    }
+
+    public static Phase start(String scope, String name) {
+        return new Phase(scope, name);
+    }
+
+    public static <T> T time(String scope, String name, Supplier<T> work) {
+        try (var phase = start(scope, name)) {
+            return work.get();
+        }
+    }
+
+    static void bind(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final String scope;
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+
+        private Phase(String scope, String name) {
+            this.scope = scope;
+            this.name = name;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long duration = System.nanoTime() - start;
+            var timings = CURRENT.get();
+            if (timings != null) timings.add(name, duration);
+            event.end();
+            if (event.shouldCommit()) {
+                event.scope = scope;
+                event.phase = name;
+                event.commit();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package edu.ucsal.fiadopay.infrastructure.observability;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fases medidas durante uma requisição, em arrays para não alocar um objeto por fase.
+ * */
+final class RequestTimings {
+
+    private final long startNanos = System.nanoTime();
+    private String[] names = new String[8];
+    private long[] durations = new long[8];
+    private int size;
+
+    void add(String name, long durationNanos) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            durations = Arrays.copyOf(durations, size * 2);
+        }
+        names[size] = name;
+        durations[size] = durationNanos;
+        size++;
+    }
+
+    /**
+     * Ex: {@code auth;dur=0.412, save;dur=1.032, app;dur=3.870}, com {@code app} sendo o total até agora.
+     * */
+    String toHeader() {
+        var header = new StringBuilder(32 * (size + 1));
+        for (int i = 0; i < size; i++) {
+            append(header, names[i], durations[i]).append(", ");
+        }
+        return append(header, "app", System.nanoTime() - startNanos).toString();
+    }
+
+    private static StringBuilder append(StringBuilder header, String name, long nanos) {
+        return header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0));
+    }
+
+}
@@ -0,0 +1,32 @@
+package edu.ucsal.fiadopay.infrastructure.observability;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Abre o acumulador de fases da requisição. O header é escrito pelo {@link ServerTimingAdvice}, logo antes do
+ * corpo ser serializado — depois disso a resposta já pode ter sido enviada e headers novos seriam ignorados.
+ * */
+@Component
+@ConditionalOnProperty(name = "fiadopay.observability.server-timing", havingValue = "true", matchIfMissing = true)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Phases.bind(new RequestTimings());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Phases.unbind();
+        }
+    }
+
+}
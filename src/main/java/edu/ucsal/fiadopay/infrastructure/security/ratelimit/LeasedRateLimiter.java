@@ -0,0 +1,97 @@
+package edu.ucsal.fiadopay.infrastructure.security.ratelimit;
+
+import edu.ucsal.fiadopay.domain.model.RateLimitWindow;
+import edu.ucsal.fiadopay.domain.repository.RateLimitWindowRepository;
+import edu.ucsal.fiadopay.infrastructure.annotation.RateLimit;
+import edu.ucsal.fiadopay.infrastructure.cluster.ClusterMembership;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate limit compartilhado entre nós através do banco. Cada nó reserva um lote de tokens por chave na janela
+ * atual (janelas alinhadas ao relógio, iguais em todos os nós) e os consome em memória; só acabar o lote ou virar
+ * a janela exige ida ao banco. Tokens reservados e não usados expiram com a janela, então a cota global nunca é
+ * ultrapassada — no pior caso um nó recusa enquanto outro ainda tem sobra. Para essa sobra ficar pequena, o lote é
+ * limitado à fatia da cota de cada nó vivo: com {@code maxRequest = 5} e três nós, cada reserva leva 1 token.
+ * */
+@Component
+@ConditionalOnProperty(name = "fiadopay.rate-limit.mode", havingValue = "distributed")
+public class LeasedRateLimiter implements RateLimiter {
+
+    private final RateLimitWindowRepository windows;
+    private final TransactionTemplate transaction;
+    private final ClusterMembership cluster;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    @Value("${fiadopay.rate-limit.lease-size}")
+    int leaseSize;
+
+    private static class Lease {
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile long windowStart = -1;
+        volatile boolean exhausted;
+    }
+
+    public LeasedRateLimiter(RateLimitWindowRepository windows, PlatformTransactionManager transactionManager, ClusterMembership cluster) {
+        this.windows = windows;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.cluster = cluster;
+    }
+
+    @Override
+    public boolean tryAcquire(String key, RateLimit rateLimit) {
+        long windowMs = rateLimit.windowSeconds() * 1000;
+        long now = System.currentTimeMillis();
+        long windowStart = now - now % windowMs;
+
+        var lease = leases.computeIfAbsent(key, k -> new Lease());
+        if (lease.windowStart == windowStart && lease.remaining.decrementAndGet() >= 0) return true;
+
+        synchronized (lease) {
+            // outra thread pode ter renovado o lote enquanto esperávamos o lock
+            if (lease.windowStart == windowStart) {
+                if (lease.remaining.decrementAndGet() >= 0) return true;
+                if (lease.exhausted) return false;
+            }
+            int granted = reserve(key, windowStart, rateLimit.maxRequest());
+            lease.exhausted = granted == 0;
+            lease.remaining.set(granted - 1);
+            lease.windowStart = windowStart;
+            return granted > 0;
+        }
+    }
+
+    private int reserve(String key, long windowStart, int maxRequest) {
+        try {
+            return transaction.execute(status -> reserveInTransaction(key, windowStart, maxRequest));
+        } catch (DataIntegrityViolationException e) {
+            // dois nós criaram a linha ao mesmo tempo; agora ela existe e o lock resolve a disputa
+            return transaction.execute(status -> reserveInTransaction(key, windowStart, maxRequest));
+        }
+    }
+
+    private int reserveInTransaction(String key, long windowStart, int maxRequest) {
+        var window = windows.findByIdForUpdate(key)
+                .orElseGet(() -> RateLimitWindow.builder().id(key).windowStart(windowStart).consumed(0).build());
+        if (window.getWindowStart() > windowStart) return 0;
+        if (window.getWindowStart() < windowStart) {
+            window.setWindowStart(windowStart);
+            window.setConsumed(0);
+        }
+        int share = Math.max(1, maxRequest / cluster.liveMembers().size());
+        int granted = Math.min(Math.min(leaseSize, share), maxRequest - window.getConsumed());
+        if (granted <= 0) return 0;
+        window.setConsumed(window.getConsumed() + granted);
+        windows.saveAndFlush(window);
+        return granted;
+    }
+
+}
@@ -0,0 +1,44 @@
+package edu.ucsal.fiadopay.infrastructure.security.ratelimit;
+
+import edu.ucsal.fiadopay.infrastructure.annotation.RateLimit;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contadores só deste nó. Com N instâncias atrás de um balanceador, cada merchant recebe até N vezes a cota.
+ * */
+@Component
+@ConditionalOnProperty(name = "fiadopay.rate-limit.mode", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimiter implements RateLimiter {
+    private final Map<String, RateLimitEntry> cache = new ConcurrentHashMap<>();
+
+    private static class RateLimitEntry{
+        long timestamp;
+        AtomicInteger counter = new AtomicInteger(0);
+
+        RateLimitEntry(long timestamp){
+            this.timestamp = timestamp;
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String key, RateLimit rateLimit) {
+        long now = System.currentTimeMillis();
+        long windowMs = rateLimit.windowSeconds() * 1000;
+
+        cache.entrySet().removeIf(entry -> now - entry.getValue().timestamp > windowMs);
+
+        RateLimitEntry entry = cache.computeIfAbsent(key, k -> new RateLimitEntry(now));
+
+        if(now - entry.timestamp > windowMs){
+            entry.timestamp = now;
+            entry.counter.set(0);
+        }
+
+        return entry.counter.incrementAndGet() <= rateLimit.maxRequest();
+    }
+}
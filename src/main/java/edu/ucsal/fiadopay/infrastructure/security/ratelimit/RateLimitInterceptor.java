@@ -9,21 +9,12 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-
 @Component
 public class RateLimitInterceptor implements HandlerInterceptor {
-    private final Map<String, RateLimitEntry> cache = new ConcurrentHashMap<>();
-
-    private static class RateLimitEntry{
-        long timestamp;
-        AtomicInteger counter = new AtomicInteger(0);
+    private final RateLimiter rateLimiter;
 
-        RateLimitEntry(long timestamp){
-            this.timestamp = timestamp;
-        }
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -39,25 +30,21 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         if(auth == null || !auth.startsWith("Bearer FAKE-"))
             return true;
 
-        String merchantId = auth.substring("Bearer FAKE-".length());
-        long now = System.currentTimeMillis();
-        long windowMs = rateLimit.windowSeconds() * 1000;
-
-        cache.entrySet().removeIf(entry -> now - entry.getValue().timestamp > windowMs);
-
-        RateLimitEntry entry = cache.computeIfAbsent(merchantId, k -> new RateLimitEntry(now));
-
-        if(now - entry.timestamp > windowMs){
-            entry.timestamp = now;
-            entry.counter.set(0);
+        // só ids numéricos viram chave: header malformado não cabe em RateLimitWindow.id e a autenticação já o recusa com 401
+        long merchantId;
+        try {
+            merchantId = Long.parseLong(auth.substring("Bearer FAKE-".length()));
+        } catch (NumberFormatException e) {
+            return true;
         }
+        // cota por merchant e por endpoint: cada @RateLimit tem seu próprio limite
+        String key = merchantId + ":" + handlerMethod.getMethod().getName();
 
-        int currentCount = entry.counter.incrementAndGet();
-        if(currentCount > rateLimit.maxRequest()){
+        if(!rateLimiter.tryAcquire(key, rateLimit)){
             throw new ResponseStatusException(
                     HttpStatus.TOO_MANY_REQUESTS,
-                    String.format("Limite de requisições excedido: %d/%d requisições em %ds",
-                            currentCount, rateLimit.maxRequest(), rateLimit.windowSeconds())
+                    String.format("Limite de requisições excedido: %d requisições em %ds",
+                            rateLimit.maxRequest(), rateLimit.windowSeconds())
             );
         }
 
@@ -0,0 +1,13 @@
+package edu.ucsal.fiadopay.infrastructure.security.ratelimit;
+
+import edu.ucsal.fiadopay.infrastructure.annotation.RateLimit;
+
+public interface RateLimiter {
+
+    /**
+     * @param key merchant e endpoint, ex: {@code 42:create}
+     * @return {@code true} se a requisição cabe na cota da janela atual
+     * */
+    boolean tryAcquire(String key, RateLimit rateLimit);
+
+}
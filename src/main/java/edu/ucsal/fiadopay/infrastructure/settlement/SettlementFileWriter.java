@@ -0,0 +1,145 @@
+package edu.ucsal.fiadopay.infrastructure.settlement;
+
+import edu.ucsal.fiadopay.domain.model.Payment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escreve o arquivo de liquidação de um merchant em formato colunar compactado (gzip).
+ * <p>
+ * Layout: cabeçalho {@code [magic "FPST"][versão][merchantId][epochDay]}, seguido de blocos de até
+ * {@value #BLOCK_ROWS} linhas, onde cada bloco grava uma coluna inteira antes da próxima
+ * (ids, métodos, moedas, status, parcelas, valor, total, total liquidado, createdAt, updatedAt). Um bloco com 0 linhas
+ * marca o fim, seguido do rodapé {@code [linhas][quantidade de status]} e, para cada status na ordem de
+ * {@link Payment.Status}, {@code [ordinal][linhas][soma dos totais liquidados em centavos]}: só o total de APPROVED é
+ * valor efetivamente liquidado. Valor e total estão na moeda do pagamento; o total liquidado, na moeda de liquidação.
+ * Só um bloco fica em memória por vez, independente de quantos pagamentos o dia teve.
+ * */
+public class SettlementFileWriter implements AutoCloseable {
+
+    public static final int MAGIC = 0x46505354;
+    public static final int VERSION = 3;
+    static final int BLOCK_ROWS = 4096;
+
+    private final Path target;
+    private final Path tmp;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+
+    private final String[] ids = new String[BLOCK_ROWS];
+    private final String[] methods = new String[BLOCK_ROWS];
+    private final String[] currencies = new String[BLOCK_ROWS];
+    private final byte[] statuses = new byte[BLOCK_ROWS];
+    private final byte[] installments = new byte[BLOCK_ROWS];
+    private final long[] amounts = new long[BLOCK_ROWS];
+    private final long[] totals = new long[BLOCK_ROWS];
+    private final long[] settled = new long[BLOCK_ROWS];
+    private final long[] createdAt = new long[BLOCK_ROWS];
+    private final long[] updatedAt = new long[BLOCK_ROWS];
+    private int rows;
+
+    private long totalRows;
+    private final long[] rowsByStatus = new long[Payment.Status.values().length];
+    private final long[] centsByStatus = new long[Payment.Status.values().length];
+    private boolean completed;
+
+    public SettlementFileWriter(Path target, long merchantId, LocalDate day) throws IOException {
+        this.target = target;
+        Files.createDirectories(target.getParent());
+        this.tmp = target.resolveSibling(target.getFileName() + ".part");
+        this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024)));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(merchantId);
+        out.writeLong(day.toEpochDay());
+    }
+
+    public void append(Payment p) throws IOException {
+        ids[rows] = p.getId();
+        methods[rows] = p.getMethod();
+        currencies[rows] = p.getCurrency();
+        statuses[rows] = (byte) p.getStatus().ordinal();
+        installments[rows] = p.getInstallments().byteValue();
+        amounts[rows] = cents(p.getAmount());
+        totals[rows] = cents(p.getTotalWithInterest());
+        settled[rows] = p.getSettlementAmount() != null ? cents(p.getSettlementAmount()) : totals[rows];
+        createdAt[rows] = p.getCreatedAt().toEpochMilli();
+        updatedAt[rows] = p.getUpdatedAt().toEpochMilli();
+        rowsByStatus[statuses[rows]]++;
+        centsByStatus[statuses[rows]] += settled[rows];
+        if (++rows == BLOCK_ROWS) flushBlock();
+    }
+
+    /**
+     * Finaliza o arquivo e o publica no destino final. Sem essa chamada, {@link #close()} descarta o arquivo parcial.
+     * */
+    public void complete() throws IOException {
+        flushBlock();
+        out.writeInt(0);
+        out.writeLong(totalRows);
+        out.writeByte(rowsByStatus.length);
+        for (int s = 0; s < rowsByStatus.length; s++) {
+            out.writeByte(s);
+            out.writeLong(rowsByStatus[s]);
+            out.writeLong(centsByStatus[s]);
+        }
+        out.close();
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        completed = true;
+    }
+
+    public long rows() {
+        return totalRows + rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (completed) return;
+        try {
+            out.close();
+        } finally {
+            channel.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) return;
+        out.writeInt(rows);
+        for (int i = 0; i < rows; i++) out.writeUTF(ids[i]);
+        for (int i = 0; i < rows; i++) out.writeUTF(methods[i]);
+        for (int i = 0; i < rows; i++) out.writeUTF(currencies[i]);
+        out.write(statuses, 0, rows);
+        out.write(installments, 0, rows);
+        for (int i = 0; i < rows; i++) out.writeLong(amounts[i]);
+        for (int i = 0; i < rows; i++) out.writeLong(totals[i]);
+        for (int i = 0; i < rows; i++) out.writeLong(settled[i]);
+        // timestamps em delta dentro do bloco: as linhas chegam ordenadas por createdAt
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            out.writeLong(createdAt[i] - previous);
+            previous = createdAt[i];
+        }
+        for (int i = 0; i < rows; i++) out.writeLong(updatedAt[i]);
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private static long cents(BigDecimal value) {
+        return value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+}